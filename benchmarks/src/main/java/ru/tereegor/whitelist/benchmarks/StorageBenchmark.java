@@ -0,0 +1,219 @@
+package ru.tereegor.whitelist.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.tereegor.whitelist.common.config.DatabaseConfig;
+import ru.tereegor.whitelist.common.model.PlayerLink;
+import ru.tereegor.whitelist.common.model.RegistrationCode;
+import ru.tereegor.whitelist.common.model.RegistrationType;
+import ru.tereegor.whitelist.common.model.WhitelistEntry;
+import ru.tereegor.whitelist.common.simulation.SimulationData;
+import ru.tereegor.whitelist.common.storage.SqlStorage;
+import ru.tereegor.whitelist.common.storage.StorageType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    static final int SERVERS = 20;
+    static final int BATCH = 200;
+
+    @Param({"H2", "SQLITE"})
+    public String storageType;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path directory;
+    private SqlStorage storage;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, SQLException {
+        directory = Files.createTempDirectory("whitelisttg-bench");
+        DatabaseConfig config = DatabaseConfig.builder()
+                .storageType(StorageType.valueOf(storageType))
+                .dataFolderPath(directory.toString())
+                .build();
+
+        storage = new SqlStorage(config, msg -> {});
+        storage.initialize().join();
+        SimulationData.seed(config, rows, SERVERS);
+        sequence.set(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close().join();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean isWhitelistedHit() {
+        int player = ThreadLocalRandom.current().nextInt(rows);
+        return storage.isWhitelisted(playerUuid(player), serverName(player)).join();
+    }
+
+    @Benchmark
+    public boolean isWhitelistedMiss() {
+        int player = ThreadLocalRandom.current().nextInt(rows);
+        return storage.isWhitelisted(SimulationData.unknownUuid(player), serverName(player)).join();
+    }
+
+    @Benchmark
+    public boolean isWhitelistedByName() {
+        int player = ThreadLocalRandom.current().nextInt(rows);
+        return storage.isWhitelistedByName(playerName(player), serverName(player)).join();
+    }
+
+    @Benchmark
+    public Map<UUID, Boolean> isWhitelistedBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<UUID> players = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            players.add(playerUuid(random.nextInt(rows)));
+        }
+        return storage.isWhitelistedBatch(players, serverName(random.nextInt(SERVERS))).join();
+    }
+
+    @Benchmark
+    public WhitelistEntry addEntry() {
+        long player = sequence.getAndIncrement();
+        return storage.addEntry(entry(playerUuid(player), playerName(player), serverName(player))).join();
+    }
+
+    @Benchmark
+    public List<WhitelistEntry> getEntriesByServer() {
+        return storage.getEntriesByServer(serverName(ThreadLocalRandom.current().nextInt(SERVERS))).join();
+    }
+
+    @Benchmark
+    public boolean activateCode(Activation activation) {
+        Optional<RegistrationCode> found = storage.getCode(activation.code).join();
+        if (found.isEmpty() || !found.get().isValid()) {
+            return false;
+        }
+        RegistrationCode code = found.get();
+        String serverName = serverName(activation.player);
+
+        if (storage.isWhitelisted(activation.uuid, serverName).join()
+                || storage.isTelegramLinked(code.getTelegramId()).join()
+                || !storage.useCode(code.getCode(), activation.uuid, activation.name).join()) {
+            return false;
+        }
+
+        storage.createLink(PlayerLink.builder()
+                .playerUuid(activation.uuid)
+                .playerName(activation.name)
+                .telegramId(code.getTelegramId())
+                .telegramUsername(code.getTelegramUsername())
+                .linkedAt(Instant.now())
+                .active(true)
+                .build()).join();
+
+        WhitelistEntry entry = entry(activation.uuid, activation.name, serverName);
+        entry.setRegistrationType(RegistrationType.TELEGRAM_CODE);
+        entry.setReason("Telegram: @" + code.getTelegramUsername());
+        entry.setAddedBy("Telegram");
+        storage.addEntry(entry).join();
+        return true;
+    }
+
+    @State(Scope.Thread)
+    public static class Activation {
+
+        private long player;
+        private UUID uuid;
+        private String name;
+        private String code;
+
+        @Setup(Level.Invocation)
+        public void prepare(StorageBenchmark benchmark) {
+            player = benchmark.sequence.getAndIncrement();
+            uuid = playerUuid(player);
+            name = playerName(player);
+            code = "B" + Long.toString(player, 36).toUpperCase(Locale.ROOT);
+
+            Instant now = Instant.now();
+            benchmark.storage.createCode(RegistrationCode.builder()
+                    .code(code)
+                    .telegramId(1_000_000_000L + player)
+                    .telegramUsername("bench" + player)
+                    .playerName(name)
+                    .createdAt(now)
+                    .expiresAt(now.plus(Duration.ofMinutes(30)))
+                    .build()).join();
+        }
+    }
+
+    private static WhitelistEntry entry(UUID uuid, String name, String serverName) {
+        return WhitelistEntry.builder()
+                .playerUuid(uuid)
+                .playerName(name)
+                .serverName(serverName)
+                .registrationType(RegistrationType.MANUAL)
+                .reason("Benchmark")
+                .addedBy("Console")
+                .createdAt(Instant.now())
+                .active(true)
+                .build();
+    }
+
+    static UUID playerUuid(long player) {
+        return SimulationData.playerUuid(player);
+    }
+
+    static String playerName(long player) {
+        return SimulationData.playerName(player);
+    }
+
+    static String serverName(long player) {
+        return SimulationData.serverName(player % SERVERS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StorageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
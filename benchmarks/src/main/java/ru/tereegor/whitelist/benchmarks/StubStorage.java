@@ -0,0 +1,111 @@
+package ru.tereegor.whitelist.benchmarks;
+
+import ru.tereegor.whitelist.common.model.WhitelistEntry;
+import ru.tereegor.whitelist.common.storage.WhitelistStorage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+class StubStorage implements WhitelistStorage {
+
+    private static final CompletableFuture<Boolean> TRUE = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> FALSE = CompletableFuture.completedFuture(false);
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> close() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<WhitelistEntry> addEntry(WhitelistEntry entry) {
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeEntry(UUID playerUuid, String serverName) {
+        return FALSE;
+    }
+
+    @Override
+    public CompletableFuture<Optional<WhitelistEntry>> getEntry(UUID playerUuid, String serverName) {
+        return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<List<WhitelistEntry>> getEntriesByPlayer(UUID playerUuid) {
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    @Override
+    public CompletableFuture<List<WhitelistEntry>> getEntriesByServer(String serverName) {
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    @Override
+    public CompletableFuture<List<WhitelistEntry>> getAllActiveEntries() {
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isWhitelisted(UUID playerUuid, String serverName) {
+        return (playerUuid.getLeastSignificantBits() & 1) == 0 ? TRUE : FALSE;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isWhitelistedByName(String playerName, String serverName) {
+        return FALSE;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isNicknameTaken(String playerName) {
+        return FALSE;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateEntry(WhitelistEntry entry) {
+        return FALSE;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getPlayerServers(UUID playerUuid) {
+        return CompletableFuture.completedFuture(List.of());
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Boolean>> isWhitelistedBatch(Collection<UUID> playerUuids, String serverName) {
+        Map<UUID, Boolean> result = new HashMap<>();
+        for (UUID playerUuid : playerUuids) {
+            result.put(playerUuid, (playerUuid.getLeastSignificantBits() & 1) == 0);
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, List<String>>> getMembership(Collection<UUID> playerUuids) {
+        Map<UUID, List<String>> result = new HashMap<>();
+        for (UUID playerUuid : playerUuids) {
+            result.put(playerUuid, List.of());
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getEntryCount(String serverName) {
+        return CompletableFuture.completedFuture(0);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getTotalEntryCount() {
+        return CompletableFuture.completedFuture(0);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.tereegor.whitelist.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.tereegor.whitelist.common.cache.WhitelistCache;
+import ru.tereegor.whitelist.common.simulation.SimulationData;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class WhitelistCacheBenchmark {
+
+    static final int SERVERS = 4;
+    private static final int TTL_SECONDS = 300;
+
+    @State(Scope.Benchmark)
+    public static class Populated {
+
+        @Param({"10000", "100000"})
+        public int maxSize;
+
+        WhitelistCache cache;
+        int players;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            cache = new WhitelistCache(new StubStorage(), TTL_SECONDS, 0, maxSize);
+            players = maxSize * 3 / 4 / SERVERS;
+            fill(cache, players);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            cache.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Full {
+
+        @Param({"10000", "100000"})
+        public int maxSize;
+
+        WhitelistCache cache;
+        final AtomicLong sequence = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            cache = new WhitelistCache(new StubStorage(), TTL_SECONDS, 0, maxSize);
+            int players = maxSize / SERVERS;
+            fill(cache, players);
+            sequence.set(players);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            cache.shutdown();
+        }
+    }
+
+    @Benchmark
+    public boolean hit(Populated state) {
+        return read(state);
+    }
+
+    @Benchmark
+    public boolean missThenFill(Populated state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID playerUuid = playerUuid(random.nextInt(state.players));
+        String serverName = serverName(random.nextInt(SERVERS));
+        state.cache.invalidate(playerUuid, serverName);
+        return state.cache.isWhitelisted(playerUuid, serverName).join();
+    }
+
+    @Benchmark
+    public boolean evictAtMaxSize(Full state) {
+        long player = state.sequence.getAndIncrement();
+        return state.cache.isWhitelisted(playerUuid(player), serverName(player)).join();
+    }
+
+    @Benchmark
+    @Group("invalidatePlayer")
+    @GroupThreads(3)
+    public boolean invalidatePlayerReaders(Populated state) {
+        return read(state);
+    }
+
+    @Benchmark
+    @Group("invalidatePlayer")
+    @GroupThreads(1)
+    public void invalidatePlayerWriter(Populated state) {
+        state.cache.invalidatePlayer(playerUuid(ThreadLocalRandom.current().nextInt(state.players)));
+    }
+
+    @Benchmark
+    @Group("invalidateServer")
+    @GroupThreads(3)
+    public boolean invalidateServerReaders(Populated state) {
+        return read(state);
+    }
+
+    @Benchmark
+    @Group("invalidateServer")
+    @GroupThreads(1)
+    public void invalidateServerWriter(Populated state) {
+        state.cache.invalidateServer(serverName(ThreadLocalRandom.current().nextInt(SERVERS)));
+    }
+
+    private static boolean read(Populated state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return state.cache.isWhitelisted(
+                playerUuid(random.nextInt(state.players)), serverName(random.nextInt(SERVERS))).join();
+    }
+
+    private static void fill(WhitelistCache cache, int players) {
+        for (int player = 0; player < players; player++) {
+            for (int server = 0; server < SERVERS; server++) {
+                cache.isWhitelisted(playerUuid(player), serverName(server)).join();
+            }
+        }
+    }
+
+    static UUID playerUuid(long player) {
+        return SimulationData.playerUuid(player);
+    }
+
+    static String serverName(long server) {
+        return SimulationData.serverName(server % SERVERS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WhitelistCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
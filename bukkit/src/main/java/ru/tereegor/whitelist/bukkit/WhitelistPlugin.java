@@ -9,12 +9,25 @@ import ru.tereegor.whitelist.bukkit.config.PluginConfig;
 import ru.tereegor.whitelist.bukkit.listener.PlayerJoinListener;
 import ru.tereegor.whitelist.bukkit.listener.PlayerLoginListener;
 import ru.tereegor.whitelist.bukkit.manager.MessageManager;
+import ru.tereegor.whitelist.bukkit.manager.CodeManager;
+import ru.tereegor.whitelist.bukkit.manager.LoginRateLimiter;
+import ru.tereegor.whitelist.bukkit.manager.MainThreadExecutor;
+import ru.tereegor.whitelist.bukkit.manager.OnlineReconciler;
 import ru.tereegor.whitelist.bukkit.manager.WhitelistManager;
 import ru.tereegor.whitelist.bukkit.telegram.TelegramBot;
+import ru.tereegor.whitelist.common.cache.OutageFallback;
 import ru.tereegor.whitelist.common.config.DatabaseConfig;
+import ru.tereegor.whitelist.common.metrics.MetricsRegistry;
+import ru.tereegor.whitelist.common.metrics.MetricsServer;
+import ru.tereegor.whitelist.common.metrics.StorageCollector;
+import ru.tereegor.whitelist.common.storage.CachingTelegramStorage;
 import ru.tereegor.whitelist.common.storage.SqlStorage;
+import ru.tereegor.whitelist.common.storage.TelegramStorage;
 import ru.tereegor.whitelist.common.storage.StorageType;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 public class WhitelistPlugin extends JavaPlugin {
@@ -26,7 +39,15 @@ public class WhitelistPlugin extends JavaPlugin {
     private MessageManager messageManager;
     private SqlStorage storage;
     private WhitelistManager whitelistManager;
+    private CodeManager codeManager;
+    private LoginRateLimiter loginRateLimiter;
+    private MainThreadExecutor mainThreadExecutor;
+    private OutageFallback outageFallback;
+    private OnlineReconciler onlineReconciler;
+    private CompletableFuture<Void> startup;
     private TelegramBot telegramBot;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private MetricsServer metricsServer;
     
     private final Object botLock = new Object();
     private volatile boolean botReloadInProgress = false;
@@ -41,14 +62,26 @@ public class WhitelistPlugin extends JavaPlugin {
             saveDefaultConfig();
             this.pluginConfig = new PluginConfig(this);
             getLogger().info("Configuration loaded. Server: " + pluginConfig.getServerName());
+            this.loginRateLimiter = new LoginRateLimiter(pluginConfig);
+            this.mainThreadExecutor = new MainThreadExecutor(this, pluginConfig.getMainThreadBudgetMillis());
+            this.outageFallback = new OutageFallback(
+                    TimeUnit.HOURS.toMillis(pluginConfig.getOutageRetentionHours()), pluginConfig.getOutageMaxSize());
             
-            this.messageManager = new MessageManager(this, pluginConfig.getLanguage());
-            getLogger().info("Messages loaded. Language: " + pluginConfig.getLanguage());
+            String language = pluginConfig.getLanguage();
+            CompletableFuture<MessageManager> messages =
+                    CompletableFuture.supplyAsync(() -> new MessageManager(this, language));
+            CompletableFuture<Void> database = initDatabase();
             
-            initDatabase();
-            getLogger().info("Database initialized");
+            TelegramStorage telegramStorage = new CachingTelegramStorage(storage,
+                    pluginConfig.getTelegramCacheTtlSeconds(), pluginConfig.getTelegramCacheMaxSize());
+            this.codeManager = new CodeManager(telegramStorage,
+                    pluginConfig.getCodeExpirationMinutes(), pluginConfig.getCodePoolSize());
+            this.whitelistManager = new WhitelistManager(this, storage, telegramStorage, codeManager);
+            this.startup = database.thenCompose(v -> codeManager.load());
             
-            this.whitelistManager = new WhitelistManager(this, storage);
+            this.messageManager = messages.join();
+            getLogger().info("Messages loaded. Language: " + language);
+            registerMetrics();
             
             registerCommands();
             getLogger().info("Commands registered");
@@ -57,11 +90,8 @@ public class WhitelistPlugin extends JavaPlugin {
             getServer().getPluginManager().registerEvents(new PlayerLoginListener(this), this);
             getLogger().info("Listeners registered");
             
-            if (pluginConfig.isTelegramEnabled()) {
-                startTelegramBot();
-            }
-            
-            getLogger().info("WhitelistTG enabled successfully! Server: " + pluginConfig.getServerName());
+            this.onlineReconciler = new OnlineReconciler(this);
+            startup.whenCompleteAsync((v, e) -> completeStartup(e), mainThreadExecutor);
         } catch (Exception e) {
             getLogger().severe("Failed to enable WhitelistTG!");
             getLogger().severe("Error: " + e.getMessage());
@@ -70,12 +100,58 @@ public class WhitelistPlugin extends JavaPlugin {
         }
     }
     
+    private void completeStartup(Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            getLogger().severe("Failed to enable WhitelistTG!");
+            getLogger().severe("Error: " + cause.getMessage());
+            cause.printStackTrace();
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+        
+        getLogger().info("Database initialized");
+        onlineReconciler.start();
+        
+        if (pluginConfig.isTelegramEnabled()) {
+            startTelegramBot();
+        }
+        
+        getLogger().info("WhitelistTG enabled successfully! Server: " + pluginConfig.getServerName());
+    }
+    
+    public boolean awaitStartup(long timeoutMillis) {
+        if (storage.isReady()) {
+            return true;
+        }
+        try {
+            startup.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+        }
+        return storage.isReady();
+    }
+    
     @Override
     public void onDisable() {
+        if (onlineReconciler != null) {
+            onlineReconciler.stop();
+        }
+        
         if (telegramBot != null) {
             telegramBot.stop();
         }
         
+        if (codeManager != null) {
+            codeManager.shutdown();
+        }
+        
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        
         if (storage != null) {
             storage.close().join();
         }
@@ -83,7 +159,7 @@ public class WhitelistPlugin extends JavaPlugin {
         getLogger().info("WhitelistTG disabled!");
     }
     
-    private void initDatabase() {
+    private CompletableFuture<Void> initDatabase() {
         try {
             DatabaseConfig dbConfig = DatabaseConfig.builder()
                     .storageType(StorageType.fromString(getConfig().getString("storage", "H2")))
@@ -97,13 +173,28 @@ public class WhitelistPlugin extends JavaPlugin {
                     .connectionTimeout(getConfig().getLong("database.pool.connection-timeout", 30000))
                     .idleTimeout(getConfig().getLong("database.pool.idle-timeout", 600000))
                     .maxLifetime(getConfig().getLong("database.pool.max-lifetime", 1800000))
+                    .slowQueryLog(getConfig().getBoolean("database.slow-query-log.enabled", false))
+                    .slowQueryThresholdMillis(getConfig().getLong("database.slow-query-log.threshold-millis", 200))
+                    .slowQuerySampleRate(getConfig().getDouble("database.slow-query-log.sample-rate", 1.0))
+                    .circuitBreaker(getConfig().getBoolean("database.circuit-breaker.enabled", true))
+                    .circuitFailureRate(getConfig().getDouble("database.circuit-breaker.failure-rate", 0.5))
+                    .circuitSlowCallMillis(getConfig().getLong("database.circuit-breaker.slow-call-millis", 2000))
+                    .circuitSlowCallRate(getConfig().getDouble("database.circuit-breaker.slow-call-rate", 0.8))
+                    .circuitMinimumCalls(getConfig().getInt("database.circuit-breaker.minimum-calls", 20))
+                    .circuitWindowSeconds(getConfig().getInt("database.circuit-breaker.window-seconds", 10))
+                    .circuitOpenSeconds(getConfig().getInt("database.circuit-breaker.open-seconds", 10))
+                    .replicaHost(getConfig().getString("database.replica.host", ""))
+                    .replicaPort(getConfig().getInt("database.replica.port", 3306))
+                    .replicaMaximumPoolSize(getConfig().getInt("database.replica.maximum-pool-size", 10))
+                    .replicaMinimumIdle(getConfig().getInt("database.replica.minimum-idle", 2))
+                    .replicaConnectionTimeout(getConfig().getLong("database.replica.connection-timeout", 2000))
+                    .readYourWritesMillis(getConfig().getLong("database.replica.read-your-writes-millis", 2000))
                     .dataFolderPath(getDataFolder().getAbsolutePath())
                     .build();
             
             getLogger().info("Initializing database: " + dbConfig.getStorageType());
             this.storage = new SqlStorage(dbConfig, msg -> getLogger().info("[DB] " + msg));
-            storage.initialize().join();
-            getLogger().info("Database initialized successfully");
+            return storage.initialize();
         } catch (Exception e) {
             getLogger().severe("Failed to initialize database: " + e.getMessage());
             e.printStackTrace();
@@ -111,6 +202,29 @@ public class WhitelistPlugin extends JavaPlugin {
         }
     }
     
+    private void registerMetrics() {
+        metrics.register(new StorageCollector(storage.getMetrics(), storage::getPoolStats));
+        metrics.gauge("whitelisttg_registration_codes_active", "Unused registration codes held in memory",
+                codeManager::getActiveCount);
+        metrics.gauge("whitelisttg_main_thread_pending", "Callbacks waiting for the main thread",
+                mainThreadExecutor::getPending);
+        
+        if (!pluginConfig.isMetricsEnabled()) {
+            return;
+        }
+        
+        try {
+            metricsServer = new MetricsServer(metrics, pluginConfig.getMetricsBind(),
+                    pluginConfig.getMetricsPort(), pluginConfig.getMetricsPath());
+            metricsServer.start();
+            getLogger().info("Metrics endpoint listening on %s:%d%s".formatted(
+                    pluginConfig.getMetricsBind(), metricsServer.getPort(), pluginConfig.getMetricsPath()));
+        } catch (Exception e) {
+            metricsServer = null;
+            getLogger().warning("Failed to start metrics endpoint: " + e.getMessage());
+        }
+    }
+    
     private void registerCommands() {
         var wlCommand = getCommand("wlt");
         if (wlCommand != null) {
@@ -152,7 +266,14 @@ public class WhitelistPlugin extends JavaPlugin {
     public void reload() {
         reloadConfig();
         this.pluginConfig = new PluginConfig(this);
+        this.loginRateLimiter = new LoginRateLimiter(pluginConfig);
         this.messageManager = new MessageManager(this, pluginConfig.getLanguage());
+        if (whitelistManager != null) {
+            whitelistManager.clearDenials();
+        }
+        if (onlineReconciler != null) {
+            onlineReconciler.start();
+        }
         
         getServer().getScheduler().runTaskAsynchronously(this, () -> {
             synchronized (botLock) {
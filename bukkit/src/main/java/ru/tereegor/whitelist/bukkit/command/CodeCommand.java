@@ -39,14 +39,16 @@ public class CodeCommand implements CommandExecutor {
         debug("Player %s trying to activate code: %s".formatted(player.getName(), code));
         
         plugin.getWhitelistManager().activateCode(code, player.getUniqueId(), player.getName())
-                .thenAccept(result -> runSync(() -> handleActivationResult(player, result)))
-                .exceptionally(e -> {
+                .whenCompleteAsync((result, e) -> {
+                    if (e == null) {
+                        handleActivationResult(player, result);
+                        return;
+                    }
                     plugin.getLogger().warning("Error activating code for %s: %s"
                             .formatted(player.getName(), e.getMessage()));
                     debugPrint(e);
-                    runSync(() -> msg().send(player, "code.invalid"));
-                    return null;
-                });
+                    msg().send(player, "code.invalid");
+                }, plugin.getMainThreadExecutor());
         
         return true;
     }
@@ -71,10 +73,6 @@ public class CodeCommand implements CommandExecutor {
         }
     }
     
-    private void runSync(Runnable task) {
-        plugin.getServer().getScheduler().runTask(plugin, task);
-    }
-    
     private void debug(String message) {
         if (plugin.getPluginConfig().isDebug()) {
             plugin.getLogger().info(message);
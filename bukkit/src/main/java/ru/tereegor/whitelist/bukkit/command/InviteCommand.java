@@ -14,6 +14,7 @@ import ru.tereegor.whitelist.common.model.PlayerLink;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.tereegor.whitelist.bukkit.manager.MessageManager.placeholder;
 import static ru.tereegor.whitelist.bukkit.manager.MessageManager.placeholders;
@@ -49,13 +50,13 @@ public class InviteCommand implements CommandExecutor, TabCompleter {
         var targetUuid = plugin.getWhitelistManager().resolvePlayerUuid(targetName);
         
         plugin.getWhitelistManager().isWhitelisted(targetUuid, targetName)
-                .thenAccept(whitelisted -> {
+                .thenAcceptAsync(whitelisted -> {
                     if (whitelisted) {
                         msg().send(sender, "invite.already-invited", placeholder("player", targetName));
                         return;
                     }
                     processInvite(sender, targetName, targetUuid, reason);
-                });
+                }, plugin.getMainThreadExecutor());
         
         return true;
     }
@@ -63,29 +64,26 @@ public class InviteCommand implements CommandExecutor, TabCompleter {
     private void processInvite(CommandSender sender, String targetName, 
             java.util.UUID targetUuid, String reason) {
         
-        Long inviterTelegramId = getInviterTelegramId(sender);
-        
-        plugin.getWhitelistManager().addPlayerWithInvite(
-                targetUuid, targetName, reason, sender.getName(), inviterTelegramId)
-                .thenAccept(entry -> runSync(() -> {
+        getInviterTelegramId(sender)
+                .thenCompose(inviterTelegramId -> plugin.getWhitelistManager().addPlayerWithInvite(
+                        targetUuid, targetName, reason, sender.getName(), inviterTelegramId))
+                .thenAcceptAsync(entry -> {
                     msg().send(sender, "invite.success", 
                             placeholders("player", targetName,
                                     "server", plugin.getPluginConfig().getServerName()));
                     msg().send(sender, "invite.success-reason", placeholders("reason", reason));
                     notifyAdmins(sender.getName(), targetName, reason);
-                }));
+                }, plugin.getMainThreadExecutor());
     }
     
-    private Long getInviterTelegramId(CommandSender sender) {
+    private CompletableFuture<Long> getInviterTelegramId(CommandSender sender) {
         if (!(sender instanceof Player player)) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         return plugin.getWhitelistManager()
                 .getPlayerLink(player.getUniqueId())
-                .join()
-                .map(PlayerLink::getTelegramId)
-                .orElse(null);
+                .thenApply(link -> link.map(PlayerLink::getTelegramId).orElse(null));
     }
     
     private void notifyAdmins(String inviter, String player, String reason) {
@@ -97,10 +95,6 @@ public class InviteCommand implements CommandExecutor, TabCompleter {
                 "whitelist.admin");
     }
     
-    private void runSync(Runnable task) {
-        plugin.getServer().getScheduler().runTask(plugin, task);
-    }
-    
     @Override
     public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
             @NotNull String alias, @NotNull String[] args) {
@@ -1,6 +1,7 @@
 package ru.tereegor.whitelist.bukkit.command;
 
 import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -9,6 +10,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
 import ru.tereegor.whitelist.bukkit.manager.MessageManager;
+import ru.tereegor.whitelist.common.metrics.LatencyHistogram;
+import ru.tereegor.whitelist.common.metrics.PoolStats;
+import ru.tereegor.whitelist.common.metrics.StorageMetrics;
 import ru.tereegor.whitelist.common.model.RegistrationType;
 import ru.tereegor.whitelist.common.model.WhitelistEntry;
 
@@ -63,6 +67,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
             case "autoadd" -> handleAutoAdd(sender, subArgs);
             case "confirm" -> handleConfirm(sender);
             case "reload" -> handleReload(sender);
+            case "stats" -> handleStats(sender, subArgs);
             case "help" -> sendHelp(sender);
             default -> msg().send(sender, "general.invalid-args", placeholders("usage", "/wlt help"));
         }
@@ -91,7 +96,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
     
     private void addPlayerToWhitelist(CommandSender sender, PlayerIdentifier id, String reason) {
         plugin.getWhitelistManager().isWhitelisted(id.uuid(), id.playerName())
-                .thenAccept(whitelisted -> {
+                .thenAcceptAsync(whitelisted -> {
                     if (whitelisted) {
                         msg().send(sender, "already-added", placeholder("player", id.playerName()));
                         return;
@@ -99,10 +104,11 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
                     
                     plugin.getWhitelistManager().addPlayer(id.uuid(), id.playerName(), 
                             RegistrationType.MANUAL, reason, sender.getName())
-                            .thenAccept(entry -> msg().send(sender, "added", 
+                            .thenAcceptAsync(entry -> msg().send(sender, "added", 
                                     placeholders("player", id.playerName(), 
-                                            "server", plugin.getPluginConfig().getServerName())));
-                });
+                                            "server", plugin.getPluginConfig().getServerName())),
+                                    plugin.getMainThreadExecutor());
+                }, plugin.getMainThreadExecutor());
     }
     
     private void handleRemove(CommandSender sender, String[] args) {
@@ -123,17 +129,17 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
     
     private void removePlayerFromWhitelist(CommandSender sender, PlayerIdentifier id) {
         plugin.getWhitelistManager().removePlayer(id.uuid())
-                .thenAccept(removed -> {
+                .thenAcceptAsync(removed -> {
                     String key = removed ? "removed" : "not-found";
                     msg().send(sender, key, placeholders("player", id.playerName(), 
                             "server", plugin.getPluginConfig().getServerName()));
-                });
+                }, plugin.getMainThreadExecutor());
     }
     
     private void handleList(CommandSender sender, String[] args) {
         int page = args.length > 0 ? parsePageNumber(args[0]) : 1;
         
-        plugin.getWhitelistManager().getAllEntries().thenAccept(entries -> {
+        plugin.getWhitelistManager().getAllEntries().thenAcceptAsync(entries -> {
             if (entries.isEmpty()) {
                 msg().send(sender, "list-empty");
                 return;
@@ -151,7 +157,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
                     startIndex, Math.min(startIndex + PAGE_SIZE, entries.size()));
             
             displayEntryList(sender, entries.size(), visibleEntries, page, totalPages);
-        });
+        }, plugin.getMainThreadExecutor());
     }
     
     private void displayEntryList(CommandSender sender, int totalCount, 
@@ -259,7 +265,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
         String playerName = args[0];
         var uuid = plugin.getWhitelistManager().resolvePlayerUuid(playerName);
         
-        plugin.getWhitelistManager().getEntries(uuid).thenAccept(entries -> {
+        plugin.getWhitelistManager().getEntries(uuid).thenAcceptAsync(entries -> {
             if (entries.isEmpty()) {
                 msg().send(sender, "info-no-entries");
                 return;
@@ -267,7 +273,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
             
             msg().sendNoPrefix(sender, "info-header", placeholders("player", playerName));
             entries.forEach(entry -> displayEntryInfo(sender, entry));
-        });
+        }, plugin.getMainThreadExecutor());
     }
     
     private void displayEntryInfo(CommandSender sender, WhitelistEntry entry) {
@@ -297,6 +303,46 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
         msg().send(sender, "general.reload-success");
     }
     
+    private void handleStats(CommandSender sender, String[] args) {
+        StorageMetrics metrics = plugin.getStorage().getMetrics();
+        
+        if (args.length > 0 && args[0].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            msg().send(sender, "stats.reset");
+            return;
+        }
+        
+        PoolStats pool = plugin.getStorage().getPoolStats();
+        LatencyHistogram.Snapshot poolWait = metrics.poolWaitSnapshot();
+        Map<String, StorageMetrics.OperationSnapshot> operations = metrics.snapshot();
+        
+        msg().sendNoPrefix(sender, "stats.header");
+        msg().sendNoPrefix(sender, "stats.pool", placeholders(
+                "active", String.valueOf(pool.active()),
+                "idle", String.valueOf(pool.idle()),
+                "awaiting", String.valueOf(pool.awaiting()),
+                "maximum", String.valueOf(pool.maximum())));
+        msg().sendNoPrefix(sender, "stats.pool-wait", latencyPlaceholders(poolWait));
+        
+        if (operations.isEmpty()) {
+            msg().sendNoPrefix(sender, "stats.empty");
+            return;
+        }
+        
+        operations.forEach((operation, snapshot) -> msg().sendNoPrefix(sender, "stats.operation",
+                placeholders("operation", operation,
+                        "count", String.valueOf(snapshot.latency().count()),
+                        "errors", String.valueOf(snapshot.errors())),
+                latencyPlaceholders(snapshot.latency())));
+    }
+    
+    private TagResolver latencyPlaceholders(LatencyHistogram.Snapshot snapshot) {
+        return placeholders(
+                "p50", LatencyHistogram.formatMicros(snapshot.percentileMicros(50)),
+                "p99", LatencyHistogram.formatMicros(snapshot.percentileMicros(99)),
+                "max", LatencyHistogram.formatMicros(snapshot.maxMicros()));
+    }
+    
     private void handleAutoAdd(CommandSender sender, String[] args) {
         if (args.length < 1) {
             String statusKey = plugin.getPluginConfig().isAutoAdd() ? "autoadd-status-on" : "autoadd-status-off";
@@ -345,7 +391,8 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
     
     private void sendHelp(CommandSender sender) {
         List.of("help.header", "help.wl-add", "help.wl-remove", "help.wl-list", 
-                "help.wl-info", "help.wl-on", "help.wl-off", "help.wl-autoadd", "help.wl-reload")
+                "help.wl-info", "help.wl-on", "help.wl-off", "help.wl-autoadd", "help.wl-reload",
+                "help.wl-stats")
                 .forEach(key -> msg().sendNoPrefix(sender, key));
     }
     
@@ -359,7 +406,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
         
         return switch (args.length) {
             case 1 -> filterCompletions(args[0], 
-                    "add", "remove", "list", "info", "on", "off", "autoadd", "confirm", "reload", "help");
+                    "add", "remove", "list", "info", "on", "off", "autoadd", "confirm", "reload", "stats", "help");
             case 2 -> getSecondArgCompletions(args[0].toLowerCase(), args[1]);
             case 3 -> getThirdArgCompletions(args[0].toLowerCase(), args[1].toLowerCase());
             default -> List.of();
@@ -370,6 +417,7 @@ public class WhitelistCommand implements CommandExecutor, TabCompleter {
         return switch (subCommand) {
             case "add", "remove" -> filterCompletions(input, "name", "uuid");
             case "autoadd" -> filterCompletions(input, "on", "off");
+            case "stats" -> filterCompletions(input, "reset");
             case "info" -> null;
             default -> List.of();
         };
@@ -3,6 +3,7 @@ package ru.tereegor.whitelist.bukkit.config;
 import lombok.Getter;
 import org.bukkit.configuration.file.FileConfiguration;
 import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
+import ru.tereegor.whitelist.common.cache.OutagePolicy;
 
 import java.util.List;
 
@@ -19,12 +20,54 @@ public class PluginConfig {
     private boolean autoAdd;
     private final String kickMessage;
     private final int codeExpirationMinutes;
+    private final int codePoolSize;
+    private final int denyCacheSeconds;
+    private final int denyCacheMaxSize;
+    private final long checkTimeoutMillis;
+    private final long startupWaitMillis;
+    private final OutagePolicy outagePolicy;
+    private final int outageRetentionHours;
+    private final int outageMaxSize;
+    private final int reconcileIntervalSeconds;
+    private final long mainThreadBudgetMillis;
+    
+    private final boolean floodProtectionEnabled;
+    private final double floodIpPerSecond;
+    private final int floodIpBurst;
+    private final double floodNamePerSecond;
+    private final int floodNameBurst;
+    private final double floodGlobalPerSecond;
+    private final int floodGlobalBurst;
+    private final int floodMaxConcurrentChecks;
+    private final long floodCheckTimeoutMillis;
+    private final int floodMaxTracked;
     private final List<String> addToServers;
     
     private final boolean telegramEnabled;
     private final String telegramToken;
     private final String telegramUsername;
     private final String rules;
+    private final int telegramWorkers;
+    private final int telegramMaxPendingUpdates;
+    private final String telegramApiUrl;
+    private final double telegramGlobalPerSecond;
+    private final double telegramChatPerSecond;
+    private final int telegramChatBurst;
+    private final int telegramSendAttempts;
+    private final int telegramSendThreads;
+    private final boolean telegramWebhookEnabled;
+    private final String telegramWebhookUrl;
+    private final String telegramWebhookBind;
+    private final int telegramWebhookPort;
+    private final String telegramWebhookPath;
+    private final String telegramWebhookSecret;
+    private final int telegramCacheTtlSeconds;
+    private final int telegramCacheMaxSize;
+    
+    private final boolean metricsEnabled;
+    private final String metricsBind;
+    private final int metricsPort;
+    private final String metricsPath;
     
     private final String dbUsername;
     private final String dbPassword;
@@ -44,12 +87,54 @@ public class PluginConfig {
         this.kickMessage = config.getString("whitelist.kick-message", 
                 "&cВы не в вайтлисте сервера %server%");
         this.codeExpirationMinutes = config.getInt("whitelist.code-expiration-minutes", 30);
+        this.codePoolSize = config.getInt("whitelist.code-pool-size", 64);
+        this.denyCacheSeconds = config.getInt("whitelist.deny-cache.ttl-seconds", 10);
+        this.denyCacheMaxSize = config.getInt("whitelist.deny-cache.max-size", 10000);
+        this.checkTimeoutMillis = config.getLong("whitelist.check-timeout-millis", 2000);
+        this.startupWaitMillis = config.getLong("whitelist.startup-wait-millis", 5000);
+        this.outagePolicy = OutagePolicy.fromString(config.getString("whitelist.outage.policy", "stale"));
+        this.outageRetentionHours = config.getInt("whitelist.outage.retention-hours", 24);
+        this.outageMaxSize = config.getInt("whitelist.outage.max-size", 10000);
+        this.reconcileIntervalSeconds = config.getInt("whitelist.reconcile-interval-seconds", 60);
+        this.mainThreadBudgetMillis = config.getLong("main-thread-budget-millis", 2);
+        
+        this.floodProtectionEnabled = config.getBoolean("flood-protection.enabled", true);
+        this.floodIpPerSecond = config.getDouble("flood-protection.per-ip.per-second", 0.5);
+        this.floodIpBurst = config.getInt("flood-protection.per-ip.burst", 5);
+        this.floodNamePerSecond = config.getDouble("flood-protection.per-name.per-second", 0.2);
+        this.floodNameBurst = config.getInt("flood-protection.per-name.burst", 3);
+        this.floodGlobalPerSecond = config.getDouble("flood-protection.global.per-second", 50);
+        this.floodGlobalBurst = config.getInt("flood-protection.global.burst", 100);
+        this.floodMaxConcurrentChecks = config.getInt("flood-protection.max-concurrent-checks", 8);
+        this.floodCheckTimeoutMillis = config.getLong("flood-protection.check-timeout-millis", 1000);
+        this.floodMaxTracked = config.getInt("flood-protection.max-tracked", 10000);
         this.addToServers = config.getStringList("whitelist.add-to-servers");
         
         this.telegramEnabled = config.getBoolean("telegram.enabled", false);
         this.telegramToken = config.getString("telegram.token", "");
         this.telegramUsername = config.getString("telegram.username", "");
         this.rules = config.getString("telegram.rules", "Правила сервера...");
+        this.telegramWorkers = config.getInt("telegram.workers", 4);
+        this.telegramMaxPendingUpdates = config.getInt("telegram.max-pending-updates", 256);
+        this.telegramApiUrl = config.getString("telegram.api-url", "");
+        this.telegramGlobalPerSecond = config.getDouble("telegram.send.global-per-second", 25);
+        this.telegramChatPerSecond = config.getDouble("telegram.send.per-chat-per-second", 1);
+        this.telegramChatBurst = config.getInt("telegram.send.per-chat-burst", 3);
+        this.telegramSendAttempts = config.getInt("telegram.send.max-attempts", 5);
+        this.telegramSendThreads = config.getInt("telegram.send.threads", 4);
+        this.telegramWebhookEnabled = config.getBoolean("telegram.webhook.enabled", false);
+        this.telegramWebhookUrl = config.getString("telegram.webhook.url", "");
+        this.telegramWebhookBind = config.getString("telegram.webhook.bind", "127.0.0.1");
+        this.telegramWebhookPort = config.getInt("telegram.webhook.port", 8443);
+        this.telegramWebhookPath = config.getString("telegram.webhook.path", "/telegram");
+        this.telegramWebhookSecret = config.getString("telegram.webhook.secret", "");
+        this.telegramCacheTtlSeconds = config.getInt("telegram.cache.ttl-seconds", 30);
+        this.telegramCacheMaxSize = config.getInt("telegram.cache.max-size", 10000);
+        
+        this.metricsEnabled = config.getBoolean("metrics.enabled", false);
+        this.metricsBind = config.getString("metrics.bind", "127.0.0.1");
+        this.metricsPort = config.getInt("metrics.port", 9225);
+        this.metricsPath = config.getString("metrics.path", "/metrics");
         
         this.dbUsername = config.getString("database.username", "root");
         this.dbPassword = config.getString("database.password", "");
@@ -60,6 +145,10 @@ public class PluginConfig {
             plugin.getLogger().warning("Telegram enabled but token not configured in config.yml!");
             plugin.getLogger().warning("Please set telegram.token and telegram.username in config.yml");
         }
+        
+        if (telegramEnabled && telegramWebhookEnabled && telegramWebhookUrl.isEmpty()) {
+            plugin.getLogger().warning("Telegram webhook enabled but telegram.webhook.url is not set!");
+        }
     }
     
     public void setWhitelistEnabled(boolean enabled) {
@@ -67,27 +67,27 @@ public class PlayerJoinListener implements Listener {
         
         plugin.getWhitelistManager()
                 .isWhitelisted(player.getUniqueId(), player.getName())
-                .thenAccept(whitelisted -> {
-                    if (!whitelisted) {
+                .thenAcceptAsync(whitelisted -> {
+                    if (!whitelisted && player.isOnline()) {
                         autoAddPlayer(player);
                     }
-                });
+                }, plugin.getMainThreadExecutor());
     }
     
     private void autoAddPlayer(Player player) {
         plugin.getWhitelistManager()
                 .addPlayer(player.getUniqueId(), player.getName(),
                         RegistrationType.MANUAL, "Автоматически добавлен при входе", "Система")
-                .thenAccept(entry -> {
+                .whenCompleteAsync((entry, e) -> {
+                    if (e != null) {
+                        plugin.getLogger().warning("Failed to auto-add %s to whitelist: %s"
+                                .formatted(player.getName(), e.getMessage()));
+                        return;
+                    }
                     msg().send(player, "auto-added",
                             MessageManager.placeholders("server", config().getServerName()));
                     plugin.getLogger().info("Player %s automatically added to whitelist"
                             .formatted(player.getName()));
-                })
-                .exceptionally(e -> {
-                    plugin.getLogger().warning("Failed to auto-add %s to whitelist: %s"
-                            .formatted(player.getName(), e.getMessage()));
-                    return null;
-                });
+                }, plugin.getMainThreadExecutor());
     }
 }
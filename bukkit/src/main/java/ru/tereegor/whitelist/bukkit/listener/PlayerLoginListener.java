@@ -8,15 +8,23 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
 import ru.tereegor.whitelist.bukkit.config.PluginConfig;
+import ru.tereegor.whitelist.bukkit.manager.LoginRateLimiter;
+import ru.tereegor.whitelist.bukkit.manager.MessageManager;
+import ru.tereegor.whitelist.bukkit.manager.MessageTemplate;
+import ru.tereegor.whitelist.bukkit.manager.PlaceholderResolver;
+import ru.tereegor.whitelist.common.cache.OutageFallback;
+import ru.tereegor.whitelist.common.storage.StorageUnavailableException;
 
 import java.util.UUID;
-
-import static ru.tereegor.whitelist.bukkit.manager.MessageManager.placeholder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RequiredArgsConstructor
 public class PlayerLoginListener implements Listener {
 
     private final WhitelistPlugin plugin;
+    private volatile KickMessage kickMessage;
 
     private PluginConfig config() {
         return plugin.getPluginConfig();
@@ -30,29 +38,98 @@ public class PlayerLoginListener implements Listener {
 
         UUID playerUuid = event.getUniqueId();
         String playerName = event.getName();
+        LoginRateLimiter rateLimiter = plugin.getLoginRateLimiter();
+        String address = event.getAddress() != null ? event.getAddress().getHostAddress() : null;
 
-        boolean isWhitelisted = checkWhitelist(playerUuid, playerName);
+        if (!rateLimiter.tryAdmit(address, playerName)) {
+            count("rate_limited");
+            denyRateLimited(event);
+            debug("Denied %s connection from %s - too many attempts".formatted(playerName, address));
+            return;
+        }
 
-        if (!isWhitelisted) {
-            Component kickMessage = plugin.getMessageManager().getComponentNoPrefix("kick.not-whitelisted",
-                    placeholder("player", playerName),
-                    placeholder("server", config().getServerDisplayName()));
-            
-            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, kickMessage);
-            debug("Denied %s connection - not whitelisted".formatted(playerName));
+        if (!plugin.awaitStartup(config().getStartupWaitMillis())) {
+            count("starting");
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    plugin.getMessageManager().getComponentNoPrefix("kick.starting"));
+            debug("Denied %s connection - plugin is still starting".formatted(playerName));
+            return;
         }
+
+        if (plugin.getWhitelistManager().isRecentlyDenied(playerUuid)) {
+            count("denied_cached");
+            deny(event, playerName);
+            debug("Denied %s connection - not whitelisted (cached)".formatted(playerName));
+            return;
+        }
+
+        CheckResult result = rateLimiter.withCheckPermit(
+                () -> checkWhitelist(playerUuid, playerName), CheckResult.BUSY);
+        count(result.label());
+
+        switch (result) {
+            case DENIED -> {
+                plugin.getWhitelistManager().rememberDenial(playerUuid);
+                deny(event, playerName);
+                debug("Denied %s connection - not whitelisted".formatted(playerName));
+            }
+            case FAILED, FALLBACK_DENIED -> deny(event, playerName);
+            case BUSY -> {
+                denyRateLimited(event);
+                debug("Denied %s connection - whitelist checks saturated".formatted(playerName));
+            }
+            default -> {
+            }
+        }
+    }
+    
+    private void denyRateLimited(AsyncPlayerPreLoginEvent event) {
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                plugin.getMessageManager().getComponentNoPrefix("kick.rate-limited"));
     }
     
-    private boolean checkWhitelist(UUID playerUuid, String playerName) {
+    private void deny(AsyncPlayerPreLoginEvent event, String playerName) {
+        Component message = kickTemplate().render(PlaceholderResolver.of("player", playerName));
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, message);
+    }
+    
+    private MessageTemplate kickTemplate() {
+        MessageManager messages = plugin.getMessageManager();
+        String serverDisplayName = config().getServerDisplayName();
+        KickMessage current = kickMessage;
+        
+        if (current == null || current.messages() != messages || !current.server().equals(serverDisplayName)) {
+            current = new KickMessage(messages, serverDisplayName, messages.getTemplateNoPrefix(
+                    "kick.not-whitelisted", PlaceholderResolver.of("server", serverDisplayName)));
+            kickMessage = current;
+        }
+        return current.template();
+    }
+    
+    private CheckResult checkWhitelist(UUID playerUuid, String playerName) {
+        String serverName = config().getServerName();
+        OutageFallback fallback = plugin.getOutageFallback();
         try {
-            return plugin.getStorage()
-                    .isWhitelisted(playerUuid, config().getServerName())
-                    .join();
+            boolean whitelisted = plugin.getStorage()
+                    .isWhitelisted(playerUuid, serverName)
+                    .get(config().getCheckTimeoutMillis(), TimeUnit.MILLISECONDS);
+            fallback.remember(playerUuid, serverName, whitelisted);
+            return whitelisted ? CheckResult.ALLOWED : CheckResult.DENIED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CheckResult.FAILED;
         } catch (Exception e) {
-            plugin.getLogger().severe("Error checking whitelist for %s: %s"
-                    .formatted(playerName, e.getMessage()));
-            e.printStackTrace();
-            return false;
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof StorageUnavailableException || cause instanceof TimeoutException) {
+                debug("Whitelist check for %s unavailable: %s".formatted(playerName, cause.getMessage()));
+            } else {
+                plugin.getLogger().severe("Error checking whitelist for %s: %s"
+                        .formatted(playerName, cause.getMessage()));
+                cause.printStackTrace();
+            }
+            
+            boolean allowed = fallback.decide(config().getOutagePolicy(), playerUuid, serverName);
+            return allowed ? CheckResult.FALLBACK_ALLOWED : CheckResult.FALLBACK_DENIED;
         }
     }
     
@@ -61,4 +138,31 @@ public class PlayerLoginListener implements Listener {
             plugin.getLogger().info(message);
         }
     }
+    
+    private void count(String result) {
+        plugin.getMetrics().counter("whitelisttg_logins_total", "Login attempts by whitelist decision",
+                "result", result).increment();
+    }
+    
+    private enum CheckResult {
+        ALLOWED,
+        DENIED,
+        FAILED,
+        FALLBACK_ALLOWED,
+        FALLBACK_DENIED,
+        BUSY;
+        
+        String label() {
+            return switch (this) {
+                case ALLOWED -> "allowed";
+                case DENIED -> "denied";
+                case FAILED -> "error";
+                case FALLBACK_ALLOWED -> "fallback_allowed";
+                case FALLBACK_DENIED -> "fallback_denied";
+                case BUSY -> "busy";
+            };
+        }
+    }
+    
+    private record KickMessage(MessageManager messages, String server, MessageTemplate template) {}
 }
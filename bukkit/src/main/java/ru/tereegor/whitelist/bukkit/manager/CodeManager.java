@@ -0,0 +1,182 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import ru.tereegor.whitelist.common.model.RegistrationCode;
+import ru.tereegor.whitelist.common.storage.DuplicateCodeException;
+import ru.tereegor.whitelist.common.storage.TelegramStorage;
+import ru.tereegor.whitelist.common.util.CodeGenerator;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CodeManager {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final TelegramStorage storage;
+    private final int expirationMinutes;
+    private final int poolSize;
+    private final Map<String, RegistrationCode> codes = new ConcurrentHashMap<>();
+    private final Map<Long, RegistrationCode> codesByTelegram = new ConcurrentHashMap<>();
+    private final Queue<String> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ScheduledExecutorService background;
+
+    public CodeManager(TelegramStorage storage, int expirationMinutes, int poolSize) {
+        this.storage = storage;
+        this.expirationMinutes = expirationMinutes;
+        this.poolSize = Math.max(1, poolSize);
+        this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WhitelistTG-Codes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        background.scheduleAtFixedRate(this::purgeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public CompletableFuture<Void> load() {
+        return storage.getActiveCodes()
+                .thenAccept(active -> {
+                    active.forEach(this::index);
+                    refill();
+                });
+    }
+
+    public CompletableFuture<RegistrationCode> generateCode(Long telegramId, String telegramUsername) {
+        return insert(telegramId, telegramUsername, MAX_ATTEMPTS);
+    }
+
+    private CompletableFuture<RegistrationCode> insert(Long telegramId, String telegramUsername, int attemptsLeft) {
+        Instant now = Instant.now();
+        RegistrationCode code = RegistrationCode.builder()
+                .code(nextCode())
+                .telegramId(telegramId)
+                .telegramUsername(telegramUsername)
+                .createdAt(now)
+                .expiresAt(now.plus(expirationMinutes, ChronoUnit.MINUTES))
+                .used(false)
+                .build();
+
+        if (codes.putIfAbsent(code.getCode(), code) != null) {
+            return insert(telegramId, telegramUsername, attemptsLeft);
+        }
+
+        return storage.createCode(code)
+                .handle((created, e) -> {
+                    if (e == null) {
+                        RegistrationCode previous = codesByTelegram.put(telegramId, code);
+                        if (previous != null && previous != code) {
+                            codes.remove(previous.getCode(), previous);
+                        }
+                        return CompletableFuture.completedFuture(code);
+                    }
+
+                    codes.remove(code.getCode(), code);
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof DuplicateCodeException && attemptsLeft > 1) {
+                        return insert(telegramId, telegramUsername, attemptsLeft - 1);
+                    }
+                    return CompletableFuture.<RegistrationCode>failedFuture(cause);
+                })
+                .thenCompose(future -> future);
+    }
+
+    public CompletableFuture<Optional<RegistrationCode>> getCode(String code) {
+        RegistrationCode cached = codes.get(code);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        return storage.getCode(code);
+    }
+
+    public CompletableFuture<Optional<RegistrationCode>> getActiveCode(Long telegramId) {
+        RegistrationCode cached = codesByTelegram.get(telegramId);
+        if (cached != null && cached.isValid()) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        return storage.getActiveCodeByTelegramId(telegramId);
+    }
+
+    public CompletableFuture<Boolean> useCode(String code, UUID playerUuid, String playerName) {
+        return storage.useCode(code, playerUuid, playerName)
+                .whenComplete((used, e) -> {
+                    RegistrationCode cached = codes.get(code);
+                    if (cached != null && e == null) {
+                        unindex(cached);
+                    }
+                });
+    }
+
+    public int getActiveCount() {
+        return codes.size();
+    }
+
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    private String nextCode() {
+        String candidate;
+        while ((candidate = pool.poll()) != null) {
+            pooled.decrementAndGet();
+            if (!codes.containsKey(candidate)) {
+                break;
+            }
+        }
+
+        if (pooled.get() < poolSize / 2) {
+            background.execute(this::refill);
+        }
+
+        if (candidate == null) {
+            candidate = CodeGenerator.generateFormatted();
+        }
+        return candidate;
+    }
+
+    private void refill() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (pooled.get() < poolSize) {
+                String candidate = CodeGenerator.generateFormatted();
+                if (!codes.containsKey(candidate)) {
+                    pool.add(candidate);
+                    pooled.incrementAndGet();
+                }
+            }
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private void index(RegistrationCode code) {
+        codes.put(code.getCode(), code);
+        codesByTelegram.merge(code.getTelegramId(), code,
+                (existing, added) -> added.getCreatedAt().isAfter(existing.getCreatedAt()) ? added : existing);
+    }
+
+    private void unindex(RegistrationCode code) {
+        codes.remove(code.getCode(), code);
+        codesByTelegram.remove(code.getTelegramId(), code);
+    }
+
+    private void purgeExpired() {
+        codes.values().removeIf(code -> !code.isValid());
+        codesByTelegram.values().removeIf(code -> !code.isValid());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import ru.tereegor.whitelist.bukkit.config.PluginConfig;
+import ru.tereegor.whitelist.common.util.TokenBucket;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final double ipPerSecond;
+    private final int ipBurst;
+    private final double namePerSecond;
+    private final int nameBurst;
+    private final int maxTracked;
+    private final long checkTimeoutMillis;
+    private final TokenBucket global;
+    private final Semaphore checks;
+    private final Map<String, TokenBucket> byIp;
+    private final Map<String, TokenBucket> byName;
+
+    public LoginRateLimiter(PluginConfig config) {
+        this.enabled = config.isFloodProtectionEnabled();
+        this.ipPerSecond = config.getFloodIpPerSecond();
+        this.ipBurst = config.getFloodIpBurst();
+        this.namePerSecond = config.getFloodNamePerSecond();
+        this.nameBurst = config.getFloodNameBurst();
+        this.maxTracked = Math.max(1, config.getFloodMaxTracked());
+        this.checkTimeoutMillis = config.getFloodCheckTimeoutMillis();
+        this.global = new TokenBucket(config.getFloodGlobalBurst(), config.getFloodGlobalPerSecond());
+        this.checks = new Semaphore(Math.max(1, config.getFloodMaxConcurrentChecks()));
+        this.byIp = boundedMap(maxTracked);
+        this.byName = boundedMap(maxTracked);
+    }
+
+    public boolean tryAdmit(String address, String playerName) {
+        if (!enabled) {
+            return true;
+        }
+        boolean ipAllowed = address == null
+                || bucket(byIp, address, ipBurst, ipPerSecond).tryAcquire();
+        boolean nameAllowed = bucket(byName, playerName.toLowerCase(Locale.ROOT), nameBurst, namePerSecond)
+                .tryAcquire();
+        return ipAllowed && nameAllowed;
+    }
+
+    public <T> T withCheckPermit(Supplier<T> check, T rejected) {
+        if (!enabled) {
+            return check.get();
+        }
+        if (!global.tryAcquire()) {
+            return rejected;
+        }
+
+        boolean acquired;
+        try {
+            acquired = checks.tryAcquire(checkTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return rejected;
+        }
+        if (!acquired) {
+            return rejected;
+        }
+
+        try {
+            return check.get();
+        } finally {
+            checks.release();
+        }
+    }
+
+    private TokenBucket bucket(Map<String, TokenBucket> buckets, String key, int burst, double perSecond) {
+        synchronized (buckets) {
+            return buckets.computeIfAbsent(key, k -> new TokenBucket(burst, perSecond));
+        }
+    }
+
+    private static Map<String, TokenBucket> boundedMap(int maxTracked) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+public class MainThreadExecutor implements Executor {
+
+    private final WhitelistPlugin plugin;
+    private final long budgetNanos;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public MainThreadExecutor(WhitelistPlugin plugin, long budgetMillis) {
+        this.plugin = plugin;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, budgetMillis));
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queue.add(task);
+        if (scheduled.compareAndSet(false, true)) {
+            schedule(0);
+        }
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void schedule(long delay) {
+        if (!plugin.isEnabled()) {
+            scheduled.set(false);
+            queue.clear();
+            return;
+        }
+        plugin.getServer().getScheduler().runTaskLater(plugin, this::drain, delay);
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + budgetNanos;
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                plugin.getLogger().log(Level.WARNING, "Main thread task failed", e);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+
+        if (!queue.isEmpty()) {
+            schedule(1);
+            return;
+        }
+        scheduled.set(false);
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+            schedule(1);
+        }
+    }
+}
@@ -2,9 +2,7 @@ package ru.tereegor.whitelist.bukkit.manager;
 
 import lombok.Getter;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -15,19 +13,24 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MessageManager {
     
-    private static final Pattern CODE_PATTERN = Pattern.compile("\\b([A-Z0-9]{3}-[A-Z0-9]{3})\\b");
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+    private static final int MAX_INLINE_TEMPLATES = 64;
     
     private final YamlConfiguration messages;
     @Getter private final String prefix;
     private final Map<String, String> colorMap = new HashMap<>();
     private final Map<String, String> templateMap = new HashMap<>();
+    private final Map<String, String> rawMessages = new HashMap<>();
+    private final Map<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, MessageTemplate> prefixedTemplates = new ConcurrentHashMap<>();
+    private final Map<String, MessageTemplate> inlineTemplates = new ConcurrentHashMap<>();
+    private final Map<String, TelegramTemplate> telegramTemplates = new ConcurrentHashMap<>();
     
     public MessageManager(WhitelistPlugin plugin, String language) {
         YamlConfiguration colors = loadConfig(plugin, "colors.yml");
@@ -36,6 +39,21 @@ public class MessageManager {
         String fileName = "messages_" + language + ".yml";
         this.messages = loadConfig(plugin, fileName, "messages_ru.yml");
         this.prefix = processColors(messages.getString("prefix", "<gray>[<gold>WhitelistTG<gray>] "));
+        compileMessages();
+    }
+    
+    private void compileMessages() {
+        for (String key : messages.getKeys(true)) {
+            if (messages.isString(key)) {
+                String raw = processColors(messages.getString(key));
+                rawMessages.put(key, raw);
+                templates.put(key, MessageTemplate.compile(raw));
+                prefixedTemplates.put(key, MessageTemplate.compile(prefix + raw));
+                if (key.startsWith("telegram.")) {
+                    telegramTemplates.put(key, TelegramTemplate.compile(templates.get(key)));
+                }
+            }
+        }
     }
     
     private YamlConfiguration loadConfig(WhitelistPlugin plugin, String fileName) {
@@ -114,53 +132,58 @@ public class MessageManager {
     }
     
     public String getRaw(String key) {
-        return processColors(messages.getString(key, "<red>Missing: " + key));
+        String raw = rawMessages.get(key);
+        return raw != null ? raw : processColors("<red>Missing: " + key);
+    }
+    
+    private MessageTemplate template(String key) {
+        return templates.computeIfAbsent(key, k -> MessageTemplate.compile(getRaw(k)));
+    }
+    
+    private MessageTemplate prefixedTemplate(String key) {
+        return prefixedTemplates.computeIfAbsent(key, k -> MessageTemplate.compile(prefix + getRaw(k)));
     }
     
     public Component getComponent(String key) {
-        return MINI_MESSAGE.deserialize(prefix + getRaw(key));
+        return prefixedTemplate(key).render();
     }
     
     public Component getComponent(String key, TagResolver... resolvers) {
-        return MINI_MESSAGE.deserialize(prefix + getRaw(key), resolvers);
+        return prefixedTemplate(key).render(resolvers);
     }
     
     public Component getComponentNoPrefix(String key) {
-        return MINI_MESSAGE.deserialize(getRaw(key));
+        return template(key).render();
     }
     
     public Component getComponentNoPrefix(String key, TagResolver... resolvers) {
-        return MINI_MESSAGE.deserialize(getRaw(key), resolvers);
+        return template(key).render(resolvers);
+    }
+    
+    public MessageTemplate getTemplateNoPrefix(String key, PlaceholderResolver fixed) {
+        return template(key).bind(fixed);
     }
     
     public void send(CommandSender sender, String key) {
-        sendMultiline(sender, getComponent(key));
+        sendLines(sender, prefixedTemplate(key).renderLines());
     }
     
     public void send(CommandSender sender, String key, TagResolver... resolvers) {
-        sendMultiline(sender, getComponent(key, resolvers));
+        sendLines(sender, prefixedTemplate(key).renderLines(resolvers));
     }
     
     public void sendNoPrefix(CommandSender sender, String key) {
-        sendMultiline(sender, getComponentNoPrefix(key));
+        sendLines(sender, template(key).renderLines());
     }
     
     public void sendNoPrefix(CommandSender sender, String key, TagResolver... resolvers) {
-        sendMultiline(sender, getComponentNoPrefix(key, resolvers));
+        sendLines(sender, template(key).renderLines(resolvers));
     }
     
-    private void sendMultiline(CommandSender sender, Component component) {
-        String text = MINI_MESSAGE.serialize(component);
-        
-        if (!text.contains("\n") && !text.contains("\\n")) {
-            sender.sendMessage(component);
-            return;
+    private void sendLines(CommandSender sender, List<Component> lines) {
+        for (Component line : lines) {
+            sender.sendMessage(line);
         }
-        
-        text.replace("\\n", "\n").lines()
-                .filter(line -> !line.trim().isEmpty())
-                .map(MINI_MESSAGE::deserialize)
-                .forEach(sender::sendMessage);
     }
     
     public void sendRaw(CommandSender sender, String message) {
@@ -168,87 +191,34 @@ public class MessageManager {
     }
     
     public static TagResolver placeholders(String... pairs) {
-        Map<String, String> map = new HashMap<>();
-        for (int i = 0; i < pairs.length - 1; i += 2) {
-            map.put(pairs[i], pairs[i + 1]);
-        }
-        return TagResolver.resolver(
-                map.entrySet().stream()
-                        .map(e -> Placeholder.parsed(e.getKey(), e.getValue()))
-                        .toArray(TagResolver[]::new)
-        );
+        return PlaceholderResolver.of(pairs);
     }
     
     public static TagResolver placeholder(String key, String value) {
-        return Placeholder.parsed(key, value);
+        return PlaceholderResolver.of(key, value);
     }
     
     public Component processAndDeserialize(String text, TagResolver... resolvers) {
-        return MINI_MESSAGE.deserialize(processColors(text), resolvers);
+        MessageTemplate template = inlineTemplates.get(text);
+        if (template == null) {
+            template = MessageTemplate.compile(processColors(text));
+            if (inlineTemplates.size() < MAX_INLINE_TEMPLATES) {
+                inlineTemplates.put(text, template);
+            }
+        }
+        return template.render(resolvers);
     }
     
     public String getRawTelegram(String key, TagResolver... resolvers) {
-        String processed = getRaw(key);
-        
-        Component component = resolvers.length > 0 
-                ? MINI_MESSAGE.deserialize(processed, resolvers)
-                : MINI_MESSAGE.deserialize(processed);
-        
-        String plainText = componentToPlainText(component);
-        
-        return "telegram.code-message".equals(key) 
-                ? formatCodeMessageForTelegram(plainText)
-                : escapeHtml(plainText);
-    }
-    
-    private String formatCodeMessageForTelegram(String plainText) {
-        if (plainText == null) return "";
-        
-        Matcher matcher = CODE_PATTERN.matcher(plainText);
-        Map<String, String> codeMarkers = new HashMap<>();
-        StringBuffer sb = new StringBuffer();
-        int index = 0;
-        
-        while (matcher.find()) {
-            String code = matcher.group(1);
-            String marker = "\uE000" + index++;
-            codeMarkers.put(marker, code);
-            matcher.appendReplacement(sb, marker);
+        if (!TelegramTemplate.supports(resolvers)) {
+            return TelegramTemplate.escapeHtml(MessageTemplate.plainText(template(key).render(resolvers)));
         }
-        matcher.appendTail(sb);
-        
-        String result = escapeHtml(sb.toString());
         
-        for (var entry : codeMarkers.entrySet()) {
-            result = result.replace(entry.getKey(), "<code>" + escapeHtml(entry.getValue()) + "</code>");
+        PlaceholderResolver[] placeholders = new PlaceholderResolver[resolvers.length];
+        for (int i = 0; i < resolvers.length; i++) {
+            placeholders[i] = (PlaceholderResolver) resolvers[i];
         }
-        
-        return result;
-    }
-    
-    private String componentToPlainText(Component component) {
-        if (component == null) return "";
-        
-        StringBuilder builder = new StringBuilder();
-        buildText(component, builder);
-        return builder.toString();
-    }
-    
-    private void buildText(Component component, StringBuilder builder) {
-        if (component instanceof TextComponent textComponent) {
-            String content = textComponent.content();
-            if (content != null && !content.isEmpty()) {
-                builder.append(content);
-            }
-        }
-        
-        component.children().forEach(child -> buildText(child, builder));
-    }
-    
-    private String escapeHtml(String text) {
-        return text == null ? "" : text
-                .replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;");
+        return telegramTemplates.computeIfAbsent(key, k -> TelegramTemplate.compile(template(k)))
+                .render(placeholders);
     }
 }
@@ -0,0 +1,154 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import net.kyori.adventure.text.minimessage.tag.standard.StandardTags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class MessageTemplate {
+
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+    private static final char SLOT_START = '\uE000';
+    private static final char SLOT_END = '\uE001';
+    static final Pattern SLOT_PATTERN = Pattern.compile(SLOT_START + "([^" + SLOT_END + "]+)" + SLOT_END);
+    private static final Pattern SLOT_NAME = Pattern.compile("[a-z0-9_-]+");
+    private static final TagResolver STANDARD_TAGS = StandardTags.defaults();
+
+    private final String source;
+    private final Component component;
+    private final boolean hasSlots;
+    private final List<MessageTemplate> lines;
+
+    private MessageTemplate(String source, Component component, boolean hasSlots, List<MessageTemplate> lines) {
+        this.source = source;
+        this.component = component;
+        this.hasSlots = hasSlots;
+        this.lines = lines;
+    }
+
+    public static MessageTemplate compile(String source) {
+        String normalized = source.replace("\\n", "\n");
+        List<MessageTemplate> lines = normalized.indexOf('\n') < 0 ? null : normalized.lines()
+                .filter(line -> !line.isBlank())
+                .map(line -> compile(line, null))
+                .toList();
+        return compile(source, lines);
+    }
+
+    private static MessageTemplate compile(String source, List<MessageTemplate> lines) {
+        SlotResolver slots = new SlotResolver();
+        Component component = MINI_MESSAGE.deserialize(source, slots);
+        return new MessageTemplate(source, component, slots.found, lines);
+    }
+
+    public String source() {
+        return source;
+    }
+
+    String plainText() {
+        return plainText(component);
+    }
+
+    static String plainText(Component component) {
+        StringBuilder builder = new StringBuilder();
+        appendText(component, builder);
+        return builder.toString();
+    }
+
+    private static void appendText(Component component, StringBuilder builder) {
+        if (component instanceof TextComponent text) {
+            builder.append(text.content());
+        }
+        for (Component child : component.children()) {
+            appendText(child, builder);
+        }
+    }
+
+    public MessageTemplate bind(PlaceholderResolver values) {
+        List<MessageTemplate> boundLines = lines == null ? null : lines.stream()
+                .map(line -> line.bind(values))
+                .toList();
+        if (!hasSlots) {
+            return new MessageTemplate(source, component, false, boundLines);
+        }
+
+        boolean[] remaining = new boolean[1];
+        Component bound = component.replaceText(TextReplacementConfig.builder()
+                .match(SLOT_PATTERN)
+                .replacement((match, builder) -> {
+                    Component value = values.component(match.group(1));
+                    if (value != null) {
+                        return value;
+                    }
+                    remaining[0] = true;
+                    return builder;
+                })
+                .build());
+        return new MessageTemplate(values.substitute(source), bound, remaining[0], boundLines);
+    }
+
+    public List<Component> renderLines(TagResolver... resolvers) {
+        if (lines == null) {
+            return List.of(render(resolvers));
+        }
+
+        List<Component> rendered = new ArrayList<>(lines.size());
+        for (MessageTemplate line : lines) {
+            rendered.add(line.render(resolvers));
+        }
+        return rendered;
+    }
+
+    public Component render(TagResolver... resolvers) {
+        for (TagResolver resolver : resolvers) {
+            if (!(resolver instanceof PlaceholderResolver)) {
+                return MINI_MESSAGE.deserialize(source, resolvers);
+            }
+        }
+
+        if (!hasSlots) {
+            return component;
+        }
+
+        return component.replaceText(TextReplacementConfig.builder()
+                .match(SLOT_PATTERN)
+                .replacement((match, builder) -> {
+                    String name = match.group(1);
+                    for (int i = resolvers.length - 1; i >= 0; i--) {
+                        Component value = ((PlaceholderResolver) resolvers[i]).component(name);
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                    return Component.text("<" + name + ">");
+                })
+                .build());
+    }
+
+    private static final class SlotResolver implements TagResolver {
+        private boolean found;
+
+        @Override
+        public Tag resolve(String name, ArgumentQueue arguments, Context ctx) {
+            if (!has(name)) {
+                return null;
+            }
+            found = true;
+            return Tag.selfClosingInserting(Component.text(SLOT_START + name + SLOT_END));
+        }
+
+        @Override
+        public boolean has(String name) {
+            return SLOT_NAME.matcher(name).matches() && !STANDARD_TAGS.has(name);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
+import ru.tereegor.whitelist.bukkit.config.PluginConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RequiredArgsConstructor
+public class OnlineReconciler {
+    
+    private final WhitelistPlugin plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private BukkitTask task;
+    
+    public void start() {
+        stop();
+        int intervalSeconds = plugin.getPluginConfig().getReconcileIntervalSeconds();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        long period = intervalSeconds * 20L;
+        task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::reconcile, period, period);
+    }
+    
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    private void reconcile() {
+        PluginConfig config = plugin.getPluginConfig();
+        if (!config.isWhitelistEnabled() || config.isAutoAdd() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        
+        List<UUID> online = new ArrayList<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (!player.hasPermission("whitelist.bypass")) {
+                online.add(player.getUniqueId());
+            }
+        }
+        if (online.isEmpty()) {
+            running.set(false);
+            return;
+        }
+        
+        String serverName = config.getServerName();
+        plugin.getStorage().isWhitelistedBatch(online, serverName)
+                .whenComplete((result, e) -> {
+                    running.set(false);
+                    if (e != null) {
+                        if (config.isDebug()) {
+                            plugin.getLogger().info("Skipped online player revalidation: " + e.getMessage());
+                        }
+                        return;
+                    }
+                    result.forEach((playerUuid, whitelisted) -> {
+                        if (!whitelisted) {
+                            plugin.getMainThreadExecutor().execute(() -> kick(playerUuid));
+                        }
+                    });
+                });
+    }
+    
+    private void kick(UUID playerUuid) {
+        Player player = plugin.getServer().getPlayer(playerUuid);
+        if (player == null || player.hasPermission("whitelist.bypass")) {
+            return;
+        }
+        
+        MessageManager messages = plugin.getMessageManager();
+        String serverDisplayName = plugin.getPluginConfig().getServerDisplayName();
+        MessageTemplate template = messages.getTemplateNoPrefix(
+                "kick.not-whitelisted", PlaceholderResolver.of("server", serverDisplayName));
+        Component message = template.render(PlaceholderResolver.of("player", player.getName()));
+        player.kick(message);
+        plugin.getWhitelistManager().rememberDenial(playerUuid);
+        plugin.getMetrics().counter("whitelisttg_access_revoked_total",
+                "Online players removed after losing whitelist access").increment();
+        plugin.getLogger().info("Kicked %s - no longer whitelisted".formatted(player.getName()));
+    }
+}
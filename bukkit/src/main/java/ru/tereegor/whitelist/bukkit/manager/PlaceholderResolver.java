@@ -0,0 +1,80 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+public final class PlaceholderResolver implements TagResolver {
+
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
+
+    private final String[] keys;
+    private final String[] values;
+
+    private PlaceholderResolver(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static PlaceholderResolver of(String key, String value) {
+        return new PlaceholderResolver(new String[]{key}, new String[]{value});
+    }
+
+    public static PlaceholderResolver of(String... pairs) {
+        int size = pairs.length / 2;
+        String[] keys = new String[size];
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = pairs[i * 2];
+            values[i] = pairs[i * 2 + 1];
+        }
+        return new PlaceholderResolver(keys, values);
+    }
+
+    public String value(String key) {
+        for (int i = keys.length - 1; i >= 0; i--) {
+            if (keys[i].equals(key)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    public Component component(String key) {
+        String value = value(key);
+        if (value == null) {
+            return null;
+        }
+        return value.indexOf('<') < 0 ? Component.text(value) : MINI_MESSAGE.deserialize(value);
+    }
+
+    public String plainValue(String key) {
+        String value = value(key);
+        if (value == null || value.indexOf('<') < 0) {
+            return value;
+        }
+        return MessageTemplate.plainText(MINI_MESSAGE.deserialize(value));
+    }
+
+    String substitute(String text) {
+        String result = text;
+        for (int i = keys.length - 1; i >= 0; i--) {
+            result = result.replace("<" + keys[i] + ">", values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Tag resolve(String name, ArgumentQueue arguments, Context ctx) {
+        String value = value(name);
+        return value != null ? Tag.preProcessParsed(value) : null;
+    }
+
+    @Override
+    public boolean has(String name) {
+        return value(name) != null;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+public final class TelegramTemplate {
+
+    private static final String CODE_SLOT = "code";
+
+    private final String[] literals;
+    private final String[] slots;
+    private final boolean[] codeSlots;
+    private final int estimatedLength;
+
+    private TelegramTemplate(String[] literals, String[] slots, boolean[] codeSlots, int estimatedLength) {
+        this.literals = literals;
+        this.slots = slots;
+        this.codeSlots = codeSlots;
+        this.estimatedLength = estimatedLength;
+    }
+
+    public static TelegramTemplate compile(MessageTemplate template) {
+        String text = template.plainText();
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+
+        Matcher matcher = MessageTemplate.SLOT_PATTERN.matcher(text);
+        int last = 0;
+        int length = 0;
+        while (matcher.find()) {
+            String literal = escapeHtml(text.substring(last, matcher.start()));
+            literals.add(literal);
+            slots.add(matcher.group(1));
+            length += literal.length() + 16;
+            last = matcher.end();
+        }
+        String tail = escapeHtml(text.substring(last));
+        literals.add(tail);
+        length += tail.length();
+
+        boolean[] codeSlots = new boolean[slots.size()];
+        for (int i = 0; i < codeSlots.length; i++) {
+            codeSlots[i] = CODE_SLOT.equals(slots.get(i));
+        }
+
+        return new TelegramTemplate(literals.toArray(String[]::new), slots.toArray(String[]::new),
+                codeSlots, length);
+    }
+
+    public String render(PlaceholderResolver... resolvers) {
+        StringBuilder builder = new StringBuilder(estimatedLength);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+
+            String value = lookup(resolvers, slots[i]);
+            if (value == null) {
+                builder.append("&lt;").append(slots[i]).append("&gt;");
+            } else if (codeSlots[i]) {
+                builder.append("<code>").append(escapeHtml(value)).append("</code>");
+            } else {
+                builder.append(escapeHtml(value));
+            }
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    static boolean supports(TagResolver... resolvers) {
+        for (TagResolver resolver : resolvers) {
+            if (!(resolver instanceof PlaceholderResolver)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String lookup(PlaceholderResolver[] resolvers, String name) {
+        for (int i = resolvers.length - 1; i >= 0; i--) {
+            String value = resolvers[i].plainValue(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    static String escapeHtml(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (text.indexOf('&') < 0 && text.indexOf('<') < 0 && text.indexOf('>') < 0) {
+            return text;
+        }
+        return text
+                .replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;");
+    }
+}
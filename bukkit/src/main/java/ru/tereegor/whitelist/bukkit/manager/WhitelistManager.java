@@ -10,20 +10,24 @@ import ru.tereegor.whitelist.common.model.RegistrationCode;
 import ru.tereegor.whitelist.common.model.RegistrationType;
 import ru.tereegor.whitelist.common.model.WhitelistEntry;
 import ru.tereegor.whitelist.common.storage.SqlStorage;
-import ru.tereegor.whitelist.common.util.CodeGenerator;
+import ru.tereegor.whitelist.common.storage.TelegramStorage;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RequiredArgsConstructor
 public class WhitelistManager {
 
     private final WhitelistPlugin plugin;
     private final SqlStorage storage;
+    private final TelegramStorage telegramStorage;
+    private final CodeManager codeManager;
+    private final Map<UUID, Long> recentDenials = new ConcurrentHashMap<>();
 
     public String getServerName() {
         return plugin.getPluginConfig().getServerName();
@@ -59,7 +63,7 @@ public class WhitelistManager {
                 .active(true)
                 .build();
 
-        return storage.addEntry(entry);
+        return addEntry(entry);
     }
     
     public CompletableFuture<WhitelistEntry> addPlayerToServers(UUID playerUuid, String playerName,
@@ -92,10 +96,53 @@ public class WhitelistManager {
                 .active(true)
                 .build();
 
-        return storage.addEntry(entry);
+        return addEntry(entry);
+    }
+    
+    private CompletableFuture<WhitelistEntry> addEntry(WhitelistEntry entry) {
+        forgetDenial(entry.getPlayerUuid());
+        return storage.addEntry(entry)
+                .whenComplete((added, e) -> forgetDenial(entry.getPlayerUuid()));
+    }
+    
+    public boolean isRecentlyDenied(UUID playerUuid) {
+        Long deniedUntil = recentDenials.get(playerUuid);
+        if (deniedUntil == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() > deniedUntil) {
+            recentDenials.remove(playerUuid, deniedUntil);
+            return false;
+        }
+        return true;
+    }
+    
+    public void rememberDenial(UUID playerUuid) {
+        int ttlSeconds = plugin.getPluginConfig().getDenyCacheSeconds();
+        if (ttlSeconds <= 0) {
+            return;
+        }
+        
+        if (recentDenials.size() >= plugin.getPluginConfig().getDenyCacheMaxSize()) {
+            long now = System.currentTimeMillis();
+            recentDenials.values().removeIf(deniedUntil -> now > deniedUntil);
+            if (recentDenials.size() >= plugin.getPluginConfig().getDenyCacheMaxSize()) {
+                recentDenials.keySet().stream().findFirst().ifPresent(recentDenials::remove);
+            }
+        }
+        recentDenials.put(playerUuid, System.currentTimeMillis() + ttlSeconds * 1000L);
+    }
+    
+    public void forgetDenial(UUID playerUuid) {
+        recentDenials.remove(playerUuid);
+    }
+    
+    public void clearDenials() {
+        recentDenials.clear();
     }
 
     public CompletableFuture<Boolean> removePlayer(UUID playerUuid) {
+        plugin.getOutageFallback().forget(playerUuid);
         return storage.removeEntry(playerUuid, getServerName());
     }
 
@@ -116,23 +163,11 @@ public class WhitelistManager {
     }
 
     public CompletableFuture<RegistrationCode> generateCode(Long telegramId, String telegramUsername) {
-        int expirationMinutes = plugin.getPluginConfig().getCodeExpirationMinutes();
-        
-        RegistrationCode code = RegistrationCode.builder()
-                .code(CodeGenerator.generateFormatted())
-                .telegramId(telegramId)
-                .telegramUsername(telegramUsername)
-                .createdAt(Instant.now())
-                .expiresAt(Instant.now().plus(expirationMinutes, ChronoUnit.MINUTES))
-                .used(false)
-                .build();
-
-        return storage.invalidateCodesForTelegramId(telegramId)
-                .thenCompose(v -> storage.createCode(code));
+        return codeManager.generateCode(telegramId, telegramUsername);
     }
 
     public CompletableFuture<Optional<RegistrationCode>> getActiveCode(Long telegramId) {
-        return storage.getActiveCodeByTelegramId(telegramId);
+        return codeManager.getActiveCode(telegramId);
     }
 
     public CompletableFuture<ActivationResult> activateCode(String code, UUID playerUuid, String playerName) {
@@ -142,7 +177,7 @@ public class WhitelistManager {
             plugin.getLogger().info("[DEBUG] Activating code: '%s' for player: %s".formatted(code, playerName));
         }
         
-        return storage.getCode(code)
+        return codeManager.getCode(code)
                 .thenCompose(optCode -> {
                     if (optCode.isEmpty()) {
                         if (debug) plugin.getLogger().info("[DEBUG] Code NOT FOUND: '%s'".formatted(code));
@@ -179,7 +214,7 @@ public class WhitelistManager {
     private CompletableFuture<ActivationResult> checkTelegramAndActivate(
             RegistrationCode regCode, UUID playerUuid, String playerName) {
         
-        return storage.isTelegramLinked(regCode.getTelegramId())
+        return telegramStorage.isTelegramLinked(regCode.getTelegramId())
                 .thenCompose(telegramLinked -> {
                     if (telegramLinked) {
                         return completedResult(false, "code.telegram-already-linked");
@@ -191,7 +226,7 @@ public class WhitelistManager {
     private CompletableFuture<ActivationResult> performActivation(
             RegistrationCode regCode, UUID playerUuid, String playerName) {
         
-        return storage.useCode(regCode.getCode(), playerUuid, playerName)
+        return codeManager.useCode(regCode.getCode(), playerUuid, playerName)
                 .thenCompose(used -> {
                     if (!used) {
                         return completedResult(false, "code.invalid");
@@ -216,7 +251,7 @@ public class WhitelistManager {
                 (regCode.getTelegramUsername() != null ? regCode.getTelegramUsername() : regCode.getTelegramId());
         List<String> serversToAdd = plugin.getPluginConfig().getServersToAddOnActivation();
 
-        return storage.createLink(link)
+        return telegramStorage.createLink(link)
                 .thenCompose(savedLink -> addPlayerToServers(
                         playerUuid, playerName, serversToAdd,
                         RegistrationType.TELEGRAM_CODE, reason, "Telegram"))
@@ -228,11 +263,11 @@ public class WhitelistManager {
     }
 
     public CompletableFuture<Optional<PlayerLink>> getPlayerLink(UUID playerUuid) {
-        return storage.getLinkByPlayer(playerUuid);
+        return telegramStorage.getLinkByPlayer(playerUuid);
     }
 
     public CompletableFuture<Optional<PlayerLink>> getLinkByTelegram(Long telegramId) {
-        return storage.getLinkByTelegramId(telegramId);
+        return telegramStorage.getLinkByTelegramId(telegramId);
     }
 
     public UUID resolvePlayerUuid(String playerName) {
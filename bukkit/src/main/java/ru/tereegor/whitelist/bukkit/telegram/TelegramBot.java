@@ -1,20 +1,27 @@
 package ru.tereegor.whitelist.bukkit.telegram;
 
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 import ru.tereegor.whitelist.bukkit.WhitelistPlugin;
+import ru.tereegor.whitelist.bukkit.config.PluginConfig;
 import ru.tereegor.whitelist.bukkit.manager.MessageManager;
+import ru.tereegor.whitelist.common.metrics.Counter;
+import ru.tereegor.whitelist.common.metrics.MetricsRegistry;
 import ru.tereegor.whitelist.common.model.PlayerLink;
 import ru.tereegor.whitelist.common.model.RegistrationCode;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.tereegor.whitelist.bukkit.manager.MessageManager.placeholder;
 
@@ -23,16 +30,63 @@ public class TelegramBot extends TelegramLongPollingBot {
     private final WhitelistPlugin plugin;
     private final MessageManager messageManager;
     private final String botUsername;
+    private final UpdateDispatcher dispatcher;
+    private final TelegramSender sender;
+    private final Counter messageUpdates;
+    private final Counter callbackUpdates;
+    private final Counter sentMessages;
+    private final Counter failedMessages;
     private DefaultBotSession botSession;
+    private TelegramWebhookServer webhookServer;
 
     public TelegramBot(WhitelistPlugin plugin) {
-        super(plugin.getPluginConfig().getTelegramToken());
+        super(botOptions(plugin.getPluginConfig()), plugin.getPluginConfig().getTelegramToken());
         this.plugin = plugin;
         this.messageManager = plugin.getMessageManager();
         this.botUsername = plugin.getPluginConfig().getTelegramUsername();
+        this.dispatcher = new UpdateDispatcher(
+                plugin.getPluginConfig().getTelegramWorkers(),
+                plugin.getPluginConfig().getTelegramMaxPendingUpdates(),
+                e -> {
+                    plugin.getLogger().warning("Error processing Telegram update: " + e.getMessage());
+                    debugPrint(e);
+                });
+        this.sender = new TelegramSender(this::execute,
+                plugin.getPluginConfig().getTelegramGlobalPerSecond(),
+                plugin.getPluginConfig().getTelegramChatPerSecond(),
+                plugin.getPluginConfig().getTelegramChatBurst(),
+                plugin.getPluginConfig().getTelegramSendAttempts(),
+                plugin.getPluginConfig().getTelegramSendThreads());
+
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.messageUpdates = metrics.counter("whitelisttg_telegram_updates_total",
+                "Telegram updates received", "type", "message");
+        this.callbackUpdates = metrics.counter("whitelisttg_telegram_updates_total",
+                "Telegram updates received", "type", "callback");
+        this.sentMessages = metrics.counter("whitelisttg_telegram_messages_total",
+                "Outgoing Telegram messages by outcome", "result", "sent");
+        this.failedMessages = metrics.counter("whitelisttg_telegram_messages_total",
+                "Outgoing Telegram messages by outcome", "result", "failed");
+        metrics.gauge("whitelisttg_telegram_send_queue", "Telegram messages waiting to be sent",
+                sender::getQueuedMessages);
+        metrics.gauge("whitelisttg_telegram_active_chats", "Chats with Telegram updates being processed",
+                dispatcher::getActiveChats);
+    }
+
+    private static DefaultBotOptions botOptions(PluginConfig config) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        if (!config.getTelegramApiUrl().isEmpty()) {
+            options.setBaseUrl(config.getTelegramApiUrl());
+        }
+        return options;
     }
 
     public void start() {
+        if (plugin.getPluginConfig().isTelegramWebhookEnabled()) {
+            startWebhook();
+            return;
+        }
+
         try {
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
             this.botSession = (DefaultBotSession) botsApi.registerBot(this);
@@ -47,7 +101,46 @@ public class TelegramBot extends TelegramLongPollingBot {
         }
     }
 
+    private void startWebhook() {
+        PluginConfig config = plugin.getPluginConfig();
+        try {
+            webhookServer = new TelegramWebhookServer(
+                    config.getTelegramWebhookBind(),
+                    config.getTelegramWebhookPort(),
+                    config.getTelegramWebhookPath(),
+                    config.getTelegramWebhookSecret(),
+                    this::onUpdateReceived,
+                    e -> {
+                        plugin.getLogger().warning("Invalid webhook request: " + e.getMessage());
+                        debugPrint(e);
+                    });
+            webhookServer.start();
+
+            SetWebhook setWebhook = SetWebhook.builder()
+                    .url(config.getTelegramWebhookUrl())
+                    .maxConnections(Math.min(100, Math.max(1, config.getTelegramWorkers())))
+                    .build();
+            if (!config.getTelegramWebhookSecret().isEmpty()) {
+                setWebhook.setSecretToken(config.getTelegramWebhookSecret());
+            }
+            execute(setWebhook);
+            log("Telegram bot started in webhook mode on port " + webhookServer.getPort());
+        } catch (TelegramApiException e) {
+            logError("Failed to register Telegram webhook: " + e.getMessage());
+            logError("Check telegram.webhook.url in config.yml");
+            debugPrint(e);
+        } catch (Exception e) {
+            logError("Failed to start Telegram webhook server: " + e.getMessage());
+            debugPrint(e);
+        }
+    }
+
     public void stop() {
+        if (webhookServer != null) {
+            webhookServer.stop();
+            webhookServer = null;
+            log("Telegram webhook server stopped");
+        }
         if (botSession != null && botSession.isRunning()) {
             try {
                 botSession.stop();
@@ -57,6 +150,8 @@ public class TelegramBot extends TelegramLongPollingBot {
                 debugPrint(e);
             }
         }
+        dispatcher.shutdown();
+        sender.shutdown();
     }
 
     @Override
@@ -66,45 +161,49 @@ public class TelegramBot extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
-        try {
-            if (update.hasMessage() && update.getMessage().hasText()) {
-                handleMessage(update);
-            } else if (update.hasCallbackQuery()) {
-                handleCallback(update);
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Error processing Telegram update: " + e.getMessage());
-            debugPrint(e);
+        if (update.hasMessage() && update.getMessage().hasText()) {
+            messageUpdates.increment();
+            dispatcher.dispatch(update.getMessage().getChatId(), () -> handleMessage(update));
+        } else if (update.hasCallbackQuery()) {
+            callbackUpdates.increment();
+            dispatcher.dispatch(callbackChatId(update), () -> handleCallback(update));
         }
     }
 
-    private void handleMessage(Update update) {
+    private Long callbackChatId(Update update) {
+        var message = update.getCallbackQuery().getMessage();
+        return message != null ? message.getChatId() : update.getCallbackQuery().getFrom().getId();
+    }
+
+    private CompletableFuture<?> handleMessage(Update update) {
         String text = update.getMessage().getText();
         Long chatId = update.getMessage().getChatId();
         String username = update.getMessage().getFrom().getUserName();
         Long userId = update.getMessage().getFrom().getId();
 
         if (text.startsWith("/start")) {
-            sendRulesMessage(chatId);
+            return sendRulesMessage(chatId);
         } else if (text.startsWith("/code")) {
-            handleCodeCommand(chatId, userId, username);
+            return handleCodeCommand(chatId, userId, username);
         } else if (text.startsWith("/help")) {
-            sendHelpMessage(chatId);
+            return sendHelpMessage(chatId);
         }
+        return CompletableFuture.completedFuture(null);
     }
 
-    private void handleCallback(Update update) {
+    private CompletableFuture<?> handleCallback(Update update) {
         String callbackData = update.getCallbackQuery().getData();
-        Long chatId = update.getCallbackQuery().getMessage().getChatId();
+        Long chatId = callbackChatId(update);
         Long userId = update.getCallbackQuery().getFrom().getId();
         String username = update.getCallbackQuery().getFrom().getUserName();
 
         if ("accept_rules".equals(callbackData)) {
-            generateAndSendCode(chatId, userId, username);
+            return generateAndSendCode(chatId, userId, username);
         }
+        return CompletableFuture.completedFuture(null);
     }
 
-    private void sendRulesMessage(Long chatId) {
+    private CompletableFuture<Void> sendRulesMessage(Long chatId) {
         String rules = plugin.getPluginConfig().getRules();
 
         InlineKeyboardButton acceptButton = new InlineKeyboardButton();
@@ -114,94 +213,92 @@ public class TelegramBot extends TelegramLongPollingBot {
         InlineKeyboardMarkup markup = new InlineKeyboardMarkup();
         markup.setKeyboard(List.of(List.of(acceptButton)));
 
-        sendHtmlMessage(chatId, rules, markup);
+        return sendHtmlMessage(chatId, rules, markup);
     }
 
-    private void generateAndSendCode(Long chatId, Long userId, String username) {
-        plugin.getWhitelistManager().getLinkByTelegram(userId)
+    private CompletableFuture<Optional<RegistrationCode>> generateAndSendCode(Long chatId, Long userId, String username) {
+        return plugin.getWhitelistManager().getLinkByTelegram(userId)
                 .thenCompose(optLink -> {
                     if (optLink.isPresent()) {
-                        sendAlreadyLinkedMessage(chatId, optLink.get());
-                        return java.util.concurrent.CompletableFuture.completedFuture(Optional.<RegistrationCode>empty());
+                        return sendAlreadyLinkedMessage(chatId, optLink.get())
+                                .thenApply(v -> Optional.<RegistrationCode>empty());
                     }
                     return checkExistingCodeOrGenerate(chatId, userId, username);
                 })
-                .exceptionally(e -> {
-                    sendText(chatId, messageManager.getRaw("telegram.code-generation-error"));
+                .exceptionallyCompose(e -> {
                     logError("Code generation error: " + e.getMessage());
                     debugPrint(e);
-                    return Optional.empty();
+                    return sendText(chatId, messageManager.getRaw("telegram.code-generation-error"))
+                            .thenApply(v -> Optional.empty());
                 });
     }
     
-    private java.util.concurrent.CompletableFuture<Optional<RegistrationCode>> checkExistingCodeOrGenerate(
+    private CompletableFuture<Optional<RegistrationCode>> checkExistingCodeOrGenerate(
             Long chatId, Long userId, String username) {
         
         return plugin.getWhitelistManager().getActiveCode(userId)
                 .thenCompose(optCode -> {
                     if (optCode.isPresent()) {
-                        sendCodeMessage(chatId, optCode.get().getCode());
-                        return java.util.concurrent.CompletableFuture.completedFuture(optCode);
+                        return sendCodeMessage(chatId, optCode.get().getCode())
+                                .thenApply(v -> optCode);
                     }
                     return generateNewCode(chatId, userId, username);
                 });
     }
     
-    private java.util.concurrent.CompletableFuture<Optional<RegistrationCode>> generateNewCode(
+    private CompletableFuture<Optional<RegistrationCode>> generateNewCode(
             Long chatId, Long userId, String username) {
         
         return plugin.getWhitelistManager().generateCode(userId, username)
-                .thenApply(code -> {
+                .thenCompose(code -> {
                     debug("Generated code: %s for telegramId: %d, expires: %s"
                             .formatted(code.getCode(), userId, code.getExpiresAt()));
-                    sendCodeMessage(chatId, code.getCode());
-                    return Optional.of(code);
+                    return sendCodeMessage(chatId, code.getCode())
+                            .thenApply(v -> Optional.of(code));
                 });
     }
     
-    private void sendAlreadyLinkedMessage(Long chatId, PlayerLink link) {
+    private CompletableFuture<Void> sendAlreadyLinkedMessage(Long chatId, PlayerLink link) {
         String linkedMessage = messageManager.getRawTelegram("telegram.already-linked",
                 placeholder("player", link.getPlayerName()));
-        sendText(chatId, linkedMessage);
+        return sendText(chatId, linkedMessage);
     }
 
-    private void sendCodeMessage(Long chatId, String code) {
+    private CompletableFuture<Void> sendCodeMessage(Long chatId, String code) {
         String message = messageManager.getRawTelegram("telegram.code-message",
                 placeholder("code", code),
                 placeholder("minutes", String.valueOf(plugin.getPluginConfig().getCodeExpirationMinutes())));
 
-        sendHtmlMessage(chatId, message, null);
+        return sendHtmlMessage(chatId, message, null);
     }
 
-    private void handleCodeCommand(Long chatId, Long userId, String username) {
-        plugin.getWhitelistManager().getLinkByTelegram(userId)
-                .thenAccept(optLink -> {
+    private CompletableFuture<Void> handleCodeCommand(Long chatId, Long userId, String username) {
+        return plugin.getWhitelistManager().getLinkByTelegram(userId)
+                .thenCompose(optLink -> {
                     if (optLink.isPresent()) {
-                        sendAlreadyLinkedMessage(chatId, optLink.get());
-                        return;
+                        return sendAlreadyLinkedMessage(chatId, optLink.get());
                     }
-                    sendExistingOrNoCode(chatId, userId);
+                    return sendExistingOrNoCode(chatId, userId);
                 });
     }
     
-    private void sendExistingOrNoCode(Long chatId, Long userId) {
-        plugin.getWhitelistManager().getActiveCode(userId)
-                .thenAccept(optCode -> {
+    private CompletableFuture<Void> sendExistingOrNoCode(Long chatId, Long userId) {
+        return plugin.getWhitelistManager().getActiveCode(userId)
+                .thenCompose(optCode -> {
                     if (optCode.isPresent()) {
-                        sendCodeMessage(chatId, optCode.get().getCode());
-                    } else {
-                        sendText(chatId, messageManager.getRaw("telegram.no-active-code"));
+                        return sendCodeMessage(chatId, optCode.get().getCode());
                     }
+                    return sendText(chatId, messageManager.getRaw("telegram.no-active-code"));
                 });
     }
 
-    private void sendHelpMessage(Long chatId) {
+    private CompletableFuture<Void> sendHelpMessage(Long chatId) {
         String help = messageManager.getRawTelegram("telegram.help-message",
                 placeholder("server", plugin.getPluginConfig().getServerDisplayName().replace("&", "")));
-        sendText(chatId, help);
+        return sendText(chatId, help);
     }
 
-    private void sendHtmlMessage(Long chatId, String text, InlineKeyboardMarkup markup) {
+    private CompletableFuture<Void> sendHtmlMessage(Long chatId, String text, InlineKeyboardMarkup markup) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
@@ -210,24 +307,33 @@ public class TelegramBot extends TelegramLongPollingBot {
             message.setReplyMarkup(markup);
         }
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            plugin.getLogger().warning("Failed to send HTML message: " + e.getMessage());
-            debugPrint(e);
-        }
+        return send(message)
+                .handle((sent, e) -> {
+                    if (e != null) {
+                        plugin.getLogger().warning("Failed to send HTML message: " + e.getMessage());
+                        debugPrint(e);
+                    }
+                    return null;
+                });
     }
 
-    private void sendText(Long chatId, String text) {
+    private CompletableFuture<Void> sendText(Long chatId, String text) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText(text);
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            plugin.getLogger().warning("Failed to send message: " + e.getMessage());
-        }
+        return send(message)
+                .handle((sent, e) -> {
+                    if (e != null) {
+                        plugin.getLogger().warning("Failed to send message: " + e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Message> send(SendMessage message) {
+        return sender.send(message)
+                .whenComplete((sent, e) -> (e == null ? sentMessages : failedMessages).increment());
     }
     
     private void log(String message) {
@@ -0,0 +1,283 @@
+package ru.tereegor.whitelist.bukkit.telegram;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.tereegor.whitelist.common.util.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TelegramSender {
+
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @FunctionalInterface
+    public interface Transport {
+        Message execute(SendMessage message) throws TelegramApiException;
+    }
+
+    private final Transport transport;
+    private final TokenBucket globalBucket;
+    private final double chatBurst;
+    private final double chatPerSecond;
+    private final long chatIdleNanos;
+    private final int maxAttempts;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final Map<String, ChatQueue> chats = new LinkedHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt;
+    private long pausedUntil = System.nanoTime();
+
+    public TelegramSender(Transport transport, double globalPerSecond, double chatPerSecond,
+                          int chatBurst, int maxAttempts, int senderThreads) {
+        this.transport = transport;
+        this.globalBucket = new TokenBucket(Math.max(1, globalPerSecond), globalPerSecond);
+        this.chatBurst = Math.max(1, chatBurst);
+        this.chatPerSecond = chatPerSecond;
+        this.chatIdleNanos = (long) (this.chatBurst / Math.max(chatPerSecond, 0.001) * TimeUnit.SECONDS.toNanos(1));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("WhitelistTG-TelegramQueue"));
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), threadFactory("WhitelistTG-TelegramSend-"));
+    }
+
+    public CompletableFuture<Message> send(SendMessage message) {
+        Pending pending = new Pending(message);
+        queued.incrementAndGet();
+        try {
+            scheduler.execute(() -> enqueue(pending));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            pending.future.completeExceptionally(new IllegalStateException("Telegram sender is stopped"));
+        }
+        return pending.future;
+    }
+
+    public int getQueuedMessages() {
+        return queued.get();
+    }
+
+    private void enqueue(Pending pending) {
+        chats.computeIfAbsent(pending.message.getChatId(), ChatQueue::new).queue.addLast(pending);
+        drain();
+    }
+
+    private void drain() {
+        long now = System.nanoTime();
+        if (now < pausedUntil) {
+            scheduleWakeup(now, pausedUntil - now);
+            return;
+        }
+
+        long nextWake = Long.MAX_VALUE;
+        Deque<ChatQueue> rotated = new ArrayDeque<>();
+
+        Iterator<ChatQueue> it = chats.values().iterator();
+        while (it.hasNext()) {
+            ChatQueue chat = it.next();
+
+            if (chat.inFlight) {
+                continue;
+            }
+            if (chat.queue.isEmpty()) {
+                if (now - chat.lastSent > chatIdleNanos && now >= chat.retryAt) {
+                    it.remove();
+                }
+                continue;
+            }
+            if (now < chat.retryAt) {
+                nextWake = Math.min(nextWake, chat.retryAt - now);
+                continue;
+            }
+
+            long chatWait = chat.bucket.nanosUntilAvailable();
+            if (chatWait > 0) {
+                nextWake = Math.min(nextWake, chatWait);
+                continue;
+            }
+
+            long globalWait = globalBucket.nanosUntilAvailable();
+            if (globalWait > 0) {
+                nextWake = Math.min(nextWake, globalWait);
+                break;
+            }
+
+            globalBucket.tryAcquire();
+            chat.bucket.tryAcquire();
+            chat.inFlight = true;
+            chat.lastSent = now;
+            submit(chat, chat.queue.peekFirst());
+
+            it.remove();
+            rotated.add(chat);
+        }
+
+        for (ChatQueue chat : rotated) {
+            chats.put(chat.chatId, chat);
+        }
+
+        if (nextWake != Long.MAX_VALUE) {
+            scheduleWakeup(now, nextWake);
+        }
+    }
+
+    private void scheduleWakeup(long now, long delay) {
+        long at = now + delay;
+        if (wakeup != null && !wakeup.isDone() && wakeupAt <= at) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        wakeupAt = at;
+        wakeup = scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void submit(ChatQueue chat, Pending pending) {
+        try {
+            senders.execute(() -> {
+                Message result = null;
+                TelegramApiException error = null;
+                try {
+                    result = transport.execute(pending.message);
+                } catch (TelegramApiException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new TelegramApiException(e);
+                }
+
+                Message sent = result;
+                TelegramApiException failure = error;
+                scheduler.execute(() -> onComplete(chat, pending, sent, failure));
+            });
+        } catch (RejectedExecutionException e) {
+            chat.inFlight = false;
+        }
+    }
+
+    private void onComplete(ChatQueue chat, Pending pending, Message result, TelegramApiException error) {
+        chat.inFlight = false;
+
+        if (error == null) {
+            finish(chat, pending);
+            pending.future.complete(result);
+        } else {
+            pending.attempts++;
+            long retryDelay = retryDelay(error, pending.attempts);
+            long retryAt = System.nanoTime() + retryDelay;
+            if (isRateLimited(error)) {
+                pausedUntil = Math.max(pausedUntil, retryAt);
+            }
+            if (retryDelay < 0 || pending.attempts >= maxAttempts) {
+                finish(chat, pending);
+                pending.future.completeExceptionally(error);
+            } else {
+                chat.retryAt = retryAt;
+            }
+        }
+
+        drain();
+    }
+
+    private void finish(ChatQueue chat, Pending pending) {
+        chat.queue.remove(pending);
+        queued.decrementAndGet();
+    }
+
+    private long retryDelay(TelegramApiException error, int attempts) {
+        if (error instanceof TelegramApiRequestException request && request.getErrorCode() != null) {
+            int code = request.getErrorCode();
+            if (code == 429) {
+                Integer retryAfter = request.getParameters() != null ? request.getParameters().getRetryAfter() : null;
+                return retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) : backoff(attempts);
+            }
+            if (code < 500) {
+                return -1;
+            }
+        }
+        return backoff(attempts);
+    }
+
+    private static boolean isRateLimited(TelegramApiException error) {
+        return error instanceof TelegramApiRequestException request
+                && request.getErrorCode() != null && request.getErrorCode() == 429;
+    }
+
+    private long backoff(int attempts) {
+        return Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempts - 1, 6));
+    }
+
+    public void shutdown() {
+        senders.shutdown();
+        try {
+            if (!senders.awaitTermination(5, TimeUnit.SECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            senders.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        IllegalStateException stopped = new IllegalStateException("Telegram sender is stopped");
+        for (ChatQueue chat : chats.values()) {
+            chat.queue.forEach(pending -> pending.future.completeExceptionally(stopped));
+        }
+        chats.clear();
+        queued.set(0);
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name.endsWith("-") ? name + counter.incrementAndGet() : name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class ChatQueue {
+        private final String chatId;
+        private final Deque<Pending> queue = new ArrayDeque<>();
+        private final TokenBucket bucket = new TokenBucket(chatBurst, chatPerSecond);
+        private boolean inFlight;
+        private long retryAt = System.nanoTime();
+        private long lastSent = System.nanoTime();
+
+        private ChatQueue(String chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private static final class Pending {
+        private final SendMessage message;
+        private final CompletableFuture<Message> future = new CompletableFuture<>();
+        private int attempts;
+
+        private Pending(SendMessage message) {
+            this.message = message;
+        }
+    }
+}
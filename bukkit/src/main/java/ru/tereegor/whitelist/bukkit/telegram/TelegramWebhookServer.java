@@ -0,0 +1,117 @@
+package ru.tereegor.whitelist.bukkit.telegram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class TelegramWebhookServer {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String bind;
+    private final int port;
+    private final String path;
+    private final byte[] secret;
+    private final Consumer<Update> updateHandler;
+    private final Consumer<Throwable> errorHandler;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public TelegramWebhookServer(String bind, int port, String path, String secret,
+                                 Consumer<Update> updateHandler, Consumer<Throwable> errorHandler) {
+        this.bind = bind;
+        this.port = port;
+        this.path = path.startsWith("/") ? path : "/" + path;
+        this.secret = secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.updateHandler = updateHandler;
+        this.errorHandler = errorHandler;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        executor = Executors.newFixedThreadPool(2, threadFactory());
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (secret != null && !secretMatches(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    exchange.sendResponseHeaders(413, -1);
+                    return;
+                }
+                update = mapper.readValue(bytes, Update.class);
+            } catch (IOException e) {
+                errorHandler.accept(e);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            try {
+                updateHandler.accept(update);
+            } catch (RuntimeException e) {
+                errorHandler.accept(e);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private boolean secretMatches(String header) {
+        return header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "WhitelistTG-Webhook-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package ru.tereegor.whitelist.bukkit.telegram;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class UpdateDispatcher {
+
+    private final ExecutorService workers;
+    private final Semaphore pending;
+    private final Map<Long, CompletableFuture<Void>> chatTails = new ConcurrentHashMap<>();
+    private final Consumer<Throwable> errorHandler;
+
+    public UpdateDispatcher(int workerThreads, int maxPendingUpdates, Consumer<Throwable> errorHandler) {
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), threadFactory());
+        this.pending = new Semaphore(Math.max(1, maxPendingUpdates));
+        this.errorHandler = errorHandler;
+    }
+
+    public void dispatch(Long chatId, Supplier<CompletableFuture<?>> handler) {
+        pending.acquireUninterruptibly();
+
+        CompletableFuture<Void> tail = chatTails.compute(chatId, (id, previous) ->
+                (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                        .thenComposeAsync(v -> run(handler), workers));
+
+        tail.whenComplete((v, e) -> {
+            chatTails.remove(chatId, tail);
+            pending.release();
+        });
+    }
+
+    private CompletableFuture<Void> run(Supplier<CompletableFuture<?>> handler) {
+        CompletableFuture<?> result;
+        try {
+            result = handler.get();
+        } catch (Throwable e) {
+            errorHandler.accept(e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (result == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return result.handle((r, e) -> {
+            if (e != null) {
+                errorHandler.accept(e);
+            }
+            return null;
+        });
+    }
+
+    public int getActiveChats() {
+        return chatTails.size();
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "WhitelistTG-Telegram-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
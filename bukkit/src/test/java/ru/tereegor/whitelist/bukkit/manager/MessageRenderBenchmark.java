@@ -0,0 +1,72 @@
+package ru.tereegor.whitelist.bukkit.manager;
+
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageRenderBenchmark {
+
+    private static final String PREFIX = "<gray>[<gold>WhitelistTG<gray>] ";
+    private static final String LIST_ENTRY = "<#95A5A6>│ <#FFD700><player> <#95A5A6>│ <#ECF0F1><type> "
+            + "<#95A5A6>│ <#95A5A6>Добавил: <#FFD700><added_by>";
+    private static final String KICK = "<red>У вас нет доступа к серверу <gold><server><red>!\n"
+            + "<gray>Получите проходку через Telegram бот.";
+    private static final String CODE_MESSAGE = "Ваш код для регистрации:\n\n<code>\n\n"
+            + "Зайдите на сервер и введите команду:\n/code <code>\n\nКод действителен <minutes> минут.";
+
+    private MessageTemplate listEntryTemplate;
+    private MessageTemplate kickTemplate;
+    private TelegramTemplate codeMessageTemplate;
+
+    @Setup
+    public void setup() {
+        listEntryTemplate = MessageTemplate.compile(PREFIX + LIST_ENTRY);
+        kickTemplate = MessageTemplate.compile(KICK);
+        codeMessageTemplate = TelegramTemplate.compile(MessageTemplate.compile(CODE_MESSAGE));
+    }
+
+    @Benchmark
+    public Component listEntry() {
+        return listEntryTemplate.render(
+                PlaceholderResolver.of("player", "Tereegor        ", "type", "Telegram", "added_by", "Telegram"));
+    }
+
+    @Benchmark
+    public Component kick() {
+        return kickTemplate.render(
+                PlaceholderResolver.of("player", "Tereegor"),
+                PlaceholderResolver.of("server", "Duckhood"));
+    }
+
+    @Benchmark
+    public String codeMessage() {
+        return codeMessageTemplate.render(
+                PlaceholderResolver.of("code", "ABC-123"),
+                PlaceholderResolver.of("minutes", "30"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MessageRenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
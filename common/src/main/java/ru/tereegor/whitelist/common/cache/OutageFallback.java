@@ -0,0 +1,79 @@
+package ru.tereegor.whitelist.common.cache;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+public class OutageFallback {
+
+    private final long retentionMillis;
+    private final int maxSize;
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> knownPlayers = new ConcurrentHashMap<>();
+
+    public OutageFallback(long retentionMillis, int maxSize) {
+        this.retentionMillis = retentionMillis;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public void remember(UUID playerUuid, String serverName, boolean whitelisted) {
+        long now = System.currentTimeMillis();
+        String key = createKey(playerUuid, serverName);
+        if (!decisions.containsKey(key)) {
+            ensureCapacity(decisions, now, Decision::decidedAt);
+        }
+        decisions.put(key, new Decision(whitelisted, now));
+
+        if (whitelisted) {
+            if (!knownPlayers.containsKey(playerUuid)) {
+                ensureCapacity(knownPlayers, now, seenAt -> seenAt);
+            }
+            knownPlayers.put(playerUuid, now);
+        }
+    }
+
+    public boolean decide(OutagePolicy policy, UUID playerUuid, String serverName) {
+        long now = System.currentTimeMillis();
+        return switch (policy) {
+            case STALE -> {
+                Decision decision = decisions.get(createKey(playerUuid, serverName));
+                yield decision != null && now - decision.decidedAt() <= retentionMillis && decision.whitelisted();
+            }
+            case ALLOW_KNOWN -> {
+                Long seenAt = knownPlayers.get(playerUuid);
+                yield seenAt != null && now - seenAt <= retentionMillis;
+            }
+            case DENY -> false;
+        };
+    }
+
+    public void forget(UUID playerUuid) {
+        String prefix = playerUuid + ":";
+        decisions.keySet().removeIf(key -> key.startsWith(prefix));
+        knownPlayers.remove(playerUuid);
+    }
+
+    public void clear() {
+        decisions.clear();
+        knownPlayers.clear();
+    }
+
+    private <K, V> void ensureCapacity(Map<K, V> map, long now, ToLongFunction<V> timestamp) {
+        if (map.size() < maxSize) {
+            return;
+        }
+
+        map.values().removeIf(value -> now - timestamp.applyAsLong(value) > retentionMillis);
+
+        if (map.size() >= maxSize) {
+            map.keySet().stream().findFirst().ifPresent(map::remove);
+        }
+    }
+
+    private String createKey(UUID playerUuid, String serverName) {
+        return playerUuid + ":" + serverName;
+    }
+
+    private record Decision(boolean whitelisted, long decidedAt) {}
+}
@@ -0,0 +1,22 @@
+package ru.tereegor.whitelist.common.cache;
+
+import java.util.Locale;
+
+public enum OutagePolicy {
+    STALE,
+    
+    ALLOW_KNOWN,
+    
+    DENY;
+    
+    public static OutagePolicy fromString(String value) {
+        if (value == null || value.isEmpty()) {
+            return STALE;
+        }
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return STALE;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package ru.tereegor.whitelist.common.cache;
+
+import ru.tereegor.whitelist.common.storage.WhitelistStorage;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WhitelistCache {
+    
+    private final WhitelistStorage storage;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final int maxSize;
+    private final Map<String, CacheEntry> whitelistCache;
+    private final Map<String, CompletableFuture<Boolean>> loading = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService cleaner;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    public WhitelistCache(WhitelistStorage storage, int ttlSeconds, int staleSeconds, int maxSize) {
+        this.storage = storage;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.staleMillis = Math.max(0, staleSeconds) * 1000L;
+        this.maxSize = maxSize;
+        this.whitelistCache = new ConcurrentHashMap<>();
+        
+        this.cleaner = Executors.newSingleThreadScheduledExecutor();
+        cleaner.scheduleAtFixedRate(this::cleanup, ttlSeconds, ttlSeconds, TimeUnit.SECONDS);
+    }
+    
+    public CompletableFuture<Boolean> isWhitelisted(UUID playerUuid, String serverName) {
+        String key = createKey(playerUuid, serverName);
+        
+        CacheEntry cached = whitelistCache.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now <= cached.expiresAt()) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        if (cached != null && now <= cached.staleUntil()) {
+            staleHits.increment();
+            if (!loading.containsKey(key)) {
+                refreshes.increment();
+                load(key, playerUuid, serverName);
+            }
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        
+        misses.increment();
+        return load(key, playerUuid, serverName);
+    }
+    
+    public void refreshAhead(Set<UUID> players, long withinMillis) {
+        if (players.isEmpty()) {
+            return;
+        }
+        
+        long refreshFrom = System.currentTimeMillis() + withinMillis;
+        whitelistCache.forEach((key, entry) -> {
+            if (entry.expiresAt() <= refreshFrom && players.contains(entry.playerUuid())
+                    && !loading.containsKey(key)) {
+                refreshes.increment();
+                load(key, entry.playerUuid(), entry.serverName());
+            }
+        });
+    }
+    
+    public CompletableFuture<Void> warmPlayer(UUID playerUuid, Collection<String> serverNames) {
+        long generation = invalidations.get();
+        return storage.getPlayerServers(playerUuid).thenAccept(servers -> {
+            if (invalidations.get() != generation) {
+                return;
+            }
+            
+            Set<String> allowed = new HashSet<>(servers);
+            for (String serverName : serverNames) {
+                cacheResult(createKey(playerUuid, serverName), playerUuid, serverName, allowed.contains(serverName));
+            }
+        });
+    }
+    
+    public CompletableFuture<Map<UUID, Boolean>> revalidate(Collection<UUID> playerUuids, String serverName) {
+        long generation = invalidations.get();
+        return storage.isWhitelistedBatch(playerUuids, serverName).thenApply(result -> {
+            if (invalidations.get() == generation) {
+                result.forEach((playerUuid, whitelisted) ->
+                        cacheResult(createKey(playerUuid, serverName), playerUuid, serverName, whitelisted));
+            }
+            return result;
+        });
+    }
+    
+    private CompletableFuture<Boolean> load(String key, UUID playerUuid, String serverName) {
+        CompletableFuture<Boolean> pending = loading.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        pending = loading.putIfAbsent(key, created);
+        if (pending != null) {
+            return pending;
+        }
+        
+        storage.isWhitelisted(playerUuid, serverName).whenComplete((result, e) -> {
+            if (loading.remove(key, created) && e == null) {
+                cacheResult(key, playerUuid, serverName, result);
+            }
+            if (e != null) {
+                created.completeExceptionally(e);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created;
+    }
+    
+    private void cacheResult(String key, UUID playerUuid, String serverName, boolean result) {
+        if (!whitelistCache.containsKey(key)) {
+            ensureCapacity();
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        whitelistCache.put(key, new CacheEntry(playerUuid, serverName, result, expiresAt, expiresAt + staleMillis));
+    }
+    
+    private void ensureCapacity() {
+        if (whitelistCache.size() < maxSize) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        whitelistCache.entrySet().removeIf(e -> now > e.getValue().staleUntil());
+        
+        if (whitelistCache.size() >= maxSize) {
+            whitelistCache.keySet().stream().findFirst().ifPresent(whitelistCache::remove);
+        }
+    }
+    
+    public void invalidate(UUID playerUuid, String serverName) {
+        String key = createKey(playerUuid, serverName);
+        invalidations.incrementAndGet();
+        loading.remove(key);
+        whitelistCache.remove(key);
+    }
+    
+    public void invalidatePlayer(UUID playerUuid) {
+        String prefix = playerUuid.toString() + ":";
+        invalidations.incrementAndGet();
+        loading.keySet().removeIf(key -> key.startsWith(prefix));
+        whitelistCache.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+    
+    public void invalidateServer(String serverName) {
+        String suffix = ":" + serverName;
+        invalidations.incrementAndGet();
+        loading.keySet().removeIf(key -> key.endsWith(suffix));
+        whitelistCache.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+    
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        loading.clear();
+        whitelistCache.clear();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+    
+    public int size() {
+        return whitelistCache.size();
+    }
+    
+    private void cleanup() {
+        long now = System.currentTimeMillis();
+        whitelistCache.entrySet().removeIf(e -> now > e.getValue().staleUntil());
+    }
+    
+    public void shutdown() {
+        cleaner.shutdown();
+    }
+    
+    private String createKey(UUID playerUuid, String serverName) {
+        return playerUuid.toString() + ":" + serverName;
+    }
+    
+    private record CacheEntry(UUID playerUuid, String serverName, boolean value, long expiresAt, long staleUntil) {}
+}
@@ -48,6 +48,53 @@ public class DatabaseConfig {
     @Builder.Default
     private long maxLifetime = 1800000;
 
+    @Builder.Default
+    private boolean slowQueryLog = false;
+
+    @Builder.Default
+    private long slowQueryThresholdMillis = 200;
+
+    @Builder.Default
+    private double slowQuerySampleRate = 1.0;
+
+    @Builder.Default
+    private boolean circuitBreaker = true;
+
+    @Builder.Default
+    private double circuitFailureRate = 0.5;
+
+    @Builder.Default
+    private long circuitSlowCallMillis = 2000;
+
+    @Builder.Default
+    private double circuitSlowCallRate = 0.8;
+
+    @Builder.Default
+    private int circuitMinimumCalls = 20;
+
+    @Builder.Default
+    private int circuitWindowSeconds = 10;
+
+    @Builder.Default
+    private int circuitOpenSeconds = 10;
+
+    private String replicaHost;
+
+    @Builder.Default
+    private int replicaPort = 3306;
+
+    @Builder.Default
+    private int replicaMaximumPoolSize = 10;
+
+    @Builder.Default
+    private int replicaMinimumIdle = 2;
+
+    @Builder.Default
+    private long replicaConnectionTimeout = 2000;
+
+    @Builder.Default
+    private long readYourWritesMillis = 2000;
+
     private String dataFolderPath;
 
     public String getJdbcUrl() {
@@ -60,11 +107,27 @@ public class DatabaseConfig {
                 String dbPath = normalizePath(dataFolderPath + "/database.db");
                 yield "jdbc:sqlite:" + dbPath;
             }
+            case MYSQL, MARIADB -> remoteJdbcUrl(host, port);
+            case YAML -> null;
+        };
+    }
+
+    public boolean hasReplica() {
+        return replicaHost != null && !replicaHost.isBlank()
+                && (storageType == StorageType.MYSQL || storageType == StorageType.MARIADB);
+    }
+
+    public String getReplicaJdbcUrl() {
+        return hasReplica() ? remoteJdbcUrl(replicaHost, replicaPort) : null;
+    }
+
+    private String remoteJdbcUrl(String host, int port) {
+        return switch (storageType) {
             case MYSQL -> "jdbc:mysql://" + host + ":" + port + "/" + database +
                     "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&characterEncoding=UTF-8";
             case MARIADB -> "jdbc:mariadb://" + host + ":" + port + "/" + database +
                     "?serverTimezone=UTC&characterEncoding=UTF-8";
-            case YAML -> null;
+            default -> null;
         };
     }
 
@@ -0,0 +1,7 @@
+package ru.tereegor.whitelist.common.metrics;
+
+@FunctionalInterface
+public interface MetricsCollector {
+
+    void collect(PrometheusWriter writer);
+}
@@ -0,0 +1,56 @@
+package ru.tereegor.whitelist.common.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+public class MetricsRegistry {
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final List<MetricsCollector> collectors = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return counters.computeIfAbsent(key(name, labels), key -> {
+            Counter counter = new Counter();
+            metrics.put(key, new Metric(name, "counter", help, labels, counter::get));
+            return counter;
+        });
+    }
+
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        metrics.put(key(name, labels), new Metric(name, "counter", help, labels, value));
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        metrics.put(key(name, labels), new Metric(name, "gauge", help, labels, value));
+    }
+
+    public void register(MetricsCollector collector) {
+        collectors.add(collector);
+    }
+
+    public void unregister(MetricsCollector collector) {
+        collectors.remove(collector);
+    }
+
+    public String scrape() {
+        PrometheusWriter writer = new PrometheusWriter();
+        for (Metric metric : metrics.values()) {
+            writer.describe(metric.name(), metric.type(), metric.help())
+                    .sample(metric.name(), metric.value().getAsDouble(), metric.labels());
+        }
+        for (MetricsCollector collector : collectors) {
+            collector.collect(writer);
+        }
+        return writer.toString();
+    }
+
+    private static String key(String name, String[] labels) {
+        return labels.length == 0 ? name : name + " " + String.join("\u0000", labels);
+    }
+
+    private record Metric(String name, String type, String help, String[] labels, DoubleSupplier value) {}
+}
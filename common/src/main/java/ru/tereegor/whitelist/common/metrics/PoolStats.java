@@ -0,0 +1,6 @@
+package ru.tereegor.whitelist.common.metrics;
+
+public record PoolStats(int active, int idle, int total, int awaiting, int maximum) {
+
+    public static final PoolStats EMPTY = new PoolStats(0, 0, 0, 0, 0);
+}
@@ -0,0 +1,94 @@
+package ru.tereegor.whitelist.common.metrics;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+public class PrometheusWriter {
+
+    private static final double[] LATENCY_BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final StringBuilder out = new StringBuilder(4096);
+    private final Set<String> described = new HashSet<>();
+
+    public PrometheusWriter describe(String name, String type, String help) {
+        if (described.add(name)) {
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        appendLabels(labels, null);
+        out.append(' ').append(formatValue(value)).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter histogram(String name, String help, LatencyHistogram.Snapshot snapshot,
+                                      String... labels) {
+        describe(name, "histogram", help);
+        for (double bound : LATENCY_BOUNDS) {
+            out.append(name).append("_bucket");
+            appendLabels(labels, formatValue(bound));
+            out.append(' ').append(snapshot.countAtMostMicros((long) (bound * 1_000_000))).append('\n');
+        }
+        out.append(name).append("_bucket");
+        appendLabels(labels, "+Inf");
+        out.append(' ').append(snapshot.count()).append('\n');
+        sample(name + "_sum", snapshot.totalMicros() / 1_000_000.0, labels);
+        sample(name + "_count", snapshot.count(), labels);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void appendLabels(String[] labels, String le) {
+        if (labels.length < 2 && le == null) {
+            return;
+        }
+        out.append('{');
+        boolean first = true;
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+            first = false;
+        }
+        if (le != null) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append("le=\"").append(le).append('"');
+        }
+        out.append('}');
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.isNaN(value) ? "NaN" : value > 0 ? "+Inf" : "-Inf";
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escapeLabel(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
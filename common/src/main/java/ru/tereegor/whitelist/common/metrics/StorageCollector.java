@@ -0,0 +1,52 @@
+package ru.tereegor.whitelist.common.metrics;
+
+import java.util.function.Supplier;
+
+public class StorageCollector implements MetricsCollector {
+
+    private final StorageMetrics metrics;
+    private final Supplier<PoolStats> poolStats;
+
+    public StorageCollector(StorageMetrics metrics, Supplier<PoolStats> poolStats) {
+        this.metrics = metrics;
+        this.poolStats = poolStats;
+    }
+
+    @Override
+    public void collect(PrometheusWriter writer) {
+        var operations = metrics.snapshot();
+
+        operations.forEach((operation, snapshot) -> writer.histogram("whitelisttg_storage_operation_seconds",
+                "Storage operation latency from submission to completion", snapshot.latency(),
+                "operation", operation));
+
+        writer.describe("whitelisttg_storage_operation_errors_total", "counter", "Failed storage operations");
+        operations.forEach((operation, snapshot) -> writer.sample("whitelisttg_storage_operation_errors_total",
+                snapshot.errors(), "operation", operation));
+
+        writer.histogram("whitelisttg_storage_pool_wait_seconds",
+                "Time spent waiting for a pooled database connection", metrics.poolWaitSnapshot());
+
+        writer.describe("whitelisttg_storage_reads_total", "counter",
+                        "Read operations by the data source that served them")
+                .sample("whitelisttg_storage_reads_total", metrics.getPrimaryReads(), "target", "primary")
+                .sample("whitelisttg_storage_reads_total", metrics.getReplicaReads(), "target", "replica");
+        writer.describe("whitelisttg_storage_replica_fallbacks_total", "counter",
+                        "Replica connection failures that sent reads to the primary")
+                .sample("whitelisttg_storage_replica_fallbacks_total", metrics.getReplicaFallbacks());
+        writer.describe("whitelisttg_storage_rejected_total", "counter",
+                        "Storage operations rejected while the circuit breaker was open")
+                .sample("whitelisttg_storage_rejected_total", metrics.getRejected());
+        writer.describe("whitelisttg_storage_circuit_state", "gauge",
+                        "Storage circuit breaker state (0 closed, 1 half-open, 2 open)")
+                .sample("whitelisttg_storage_circuit_state", metrics.getCircuitState());
+
+        PoolStats pool = poolStats.get();
+        writer.describe("whitelisttg_storage_pool_connections", "gauge", "Database connections by state")
+                .sample("whitelisttg_storage_pool_connections", pool.active(), "state", "active")
+                .sample("whitelisttg_storage_pool_connections", pool.idle(), "state", "idle")
+                .sample("whitelisttg_storage_pool_connections", pool.awaiting(), "state", "awaiting");
+        writer.describe("whitelisttg_storage_pool_max_connections", "gauge", "Maximum database pool size")
+                .sample("whitelisttg_storage_pool_max_connections", pool.maximum());
+    }
+}
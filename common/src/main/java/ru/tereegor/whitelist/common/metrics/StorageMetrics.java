@@ -0,0 +1,96 @@
+package ru.tereegor.whitelist.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StorageMetrics {
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder replicaFallbacks = new LongAdder();
+    private volatile int circuitState;
+
+    public void record(String operation, long nanos, boolean failed) {
+        Operation metrics = operations.computeIfAbsent(operation, k -> new Operation());
+        metrics.latency.record(nanos);
+        if (failed) {
+            metrics.errors.increment();
+        }
+    }
+
+    public void recordPoolWait(long nanos) {
+        poolWait.record(nanos);
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public void recordRead(boolean replica) {
+        if (replica) {
+            replicaReads.increment();
+        } else {
+            primaryReads.increment();
+        }
+    }
+
+    public void recordReplicaFallback() {
+        replicaFallbacks.increment();
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getReplicaFallbacks() {
+        return replicaFallbacks.sum();
+    }
+
+    public void setCircuitState(int state) {
+        circuitState = state;
+    }
+
+    public int getCircuitState() {
+        return circuitState;
+    }
+
+    public Map<String, OperationSnapshot> snapshot() {
+        Map<String, OperationSnapshot> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name,
+                new OperationSnapshot(metrics.latency.snapshot(), metrics.errors.sum())));
+        return result;
+    }
+
+    public LatencyHistogram.Snapshot poolWaitSnapshot() {
+        return poolWait.snapshot();
+    }
+
+    public void reset() {
+        operations.clear();
+        poolWait.reset();
+        rejected.reset();
+        primaryReads.reset();
+        replicaReads.reset();
+        replicaFallbacks.reset();
+    }
+
+    public record OperationSnapshot(LatencyHistogram.Snapshot latency, long errors) {}
+
+    private static final class Operation {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+}
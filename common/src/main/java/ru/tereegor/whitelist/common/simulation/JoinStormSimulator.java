@@ -0,0 +1,319 @@
+package ru.tereegor.whitelist.common.simulation;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.tereegor.whitelist.common.cache.WhitelistCache;
+import ru.tereegor.whitelist.common.config.DatabaseConfig;
+import ru.tereegor.whitelist.common.metrics.LatencyHistogram;
+import ru.tereegor.whitelist.common.storage.SqlStorage;
+import ru.tereegor.whitelist.common.storage.StorageType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class JoinStormSimulator {
+
+    private final Options options;
+    private final LatencyHistogram logins = new LatencyHistogram();
+    private final LatencyHistogram switches = new LatencyHistogram();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private int warmPlayers;
+    private long coldSwitches;
+
+    public JoinStormSimulator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        new JoinStormSimulator(options).run().print(System.out);
+        System.exit(0);
+    }
+
+    public Report run() throws Exception {
+        Path directory = options.getDataDir() != null
+                ? Files.createDirectories(Path.of(options.getDataDir()))
+                : Files.createTempDirectory("whitelisttg-storm");
+        DatabaseConfig config = DatabaseConfig.builder()
+                .storageType(options.getStorageType())
+                .dataFolderPath(directory.toString())
+                .maximumPoolSize(options.getPoolSize())
+                .minimumIdle(options.getPoolSize())
+                .build();
+
+        SqlStorage storage = new SqlStorage(config, msg -> {});
+        WhitelistCache cache = null;
+        try {
+            storage.initialize().join();
+            SimulationData.seed(config, options.getPlayers(), options.getServers());
+
+            cache = new WhitelistCache(storage, options.getCacheTtlSeconds(),
+                    options.getCacheStaleSeconds(), options.getCacheSize());
+            warmUp(cache);
+            storage.getMetrics().reset();
+            long warmHits = cache.getHits() + cache.getStaleHits();
+            long warmMisses = cache.getMisses();
+
+            long start = System.nanoTime();
+            replay(storage, cache);
+            long elapsed = System.nanoTime() - start;
+
+            return new Report(options, elapsed, logins.snapshot(), switches.snapshot(),
+                    cache.getHits() + cache.getStaleHits() - warmHits, cache.getMisses() - warmMisses, allowed.sum(), denied.sum(), failed.sum(),
+                    storage.getMetrics().poolWaitSnapshot());
+        } finally {
+            if (cache != null) {
+                cache.shutdown();
+            }
+            storage.close().join();
+            if (options.getDataDir() == null) {
+                delete(directory);
+            }
+        }
+    }
+
+    private void warmUp(WhitelistCache cache) {
+        warmPlayers = Math.min(options.getPlayers() / 2, options.getCacheSize() / 2);
+        for (int player = 0; player < warmPlayers; player++) {
+            cache.isWhitelisted(SimulationData.playerUuid(player), serverOf(player)).join();
+        }
+    }
+
+    private void replay(SqlStorage storage, WhitelistCache cache) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.getConcurrency());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int i = 0; i < options.getEvents(); i++) {
+            inFlight.acquire();
+            boolean isSwitch = random.nextDouble() < options.getSwitchRatio();
+            LatencyHistogram histogram = isSwitch ? switches : logins;
+            long started = System.nanoTime();
+
+            CompletableFuture<Boolean> decision;
+            try {
+                decision = isSwitch ? switchDecision(cache, random) : loginDecision(storage, random);
+            } catch (RuntimeException e) {
+                decision = CompletableFuture.failedFuture(e);
+            }
+
+            decision.whenComplete((result, e) -> {
+                histogram.record(System.nanoTime() - started);
+                if (e != null) {
+                    failed.increment();
+                } else if (result) {
+                    allowed.increment();
+                } else {
+                    denied.increment();
+                }
+                inFlight.release();
+            });
+        }
+
+        inFlight.acquire(options.getConcurrency());
+    }
+
+    private CompletableFuture<Boolean> loginDecision(SqlStorage storage, ThreadLocalRandom random) {
+        int player = random.nextInt(Math.max(1, options.getPlayers()));
+        String serverName = serverOf(player);
+
+        if (options.getPlayers() > 0 && random.nextDouble() < options.getWhitelistedRatio()) {
+            return checkLogin(storage, SimulationData.playerUuid(player), SimulationData.playerName(player), serverName);
+        }
+        return checkLogin(storage, SimulationData.unknownUuid(player), SimulationData.unknownName(player), serverName);
+    }
+
+    private CompletableFuture<Boolean> checkLogin(SqlStorage storage, UUID playerUuid, String playerName,
+                                                  String serverName) {
+        return storage.isWhitelisted(playerUuid, serverName)
+                .thenCompose(byUuid -> byUuid
+                        ? CompletableFuture.completedFuture(true)
+                        : storage.isWhitelistedByName(playerName, serverName));
+    }
+
+    private CompletableFuture<Boolean> switchDecision(WhitelistCache cache, ThreadLocalRandom random) {
+        if (warmPlayers > 0 && random.nextDouble() < options.getCacheHitRatio()) {
+            int player = random.nextInt(warmPlayers);
+            return cache.isWhitelisted(SimulationData.playerUuid(player), serverOf(player));
+        }
+
+        long cold = coldSwitches++;
+        int coldPlayers = options.getPlayers() - warmPlayers;
+        if (coldPlayers > 0 && random.nextDouble() < options.getWhitelistedRatio()) {
+            int player = warmPlayers + (int) (cold % coldPlayers);
+            return cache.isWhitelisted(SimulationData.playerUuid(player), serverOf(player));
+        }
+        return cache.isWhitelisted(SimulationData.unknownUuid(cold), serverOf(cold));
+    }
+
+    private String serverOf(long player) {
+        return SimulationData.serverName(player % options.getServers());
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Options {
+
+        static final String USAGE = """
+                Usage: JoinStormSimulator [--storage=H2|SQLITE] [--players=N] [--servers=N] [--events=N]
+                                          [--concurrency=N] [--switch-ratio=0..1] [--cache-hit-ratio=0..1]
+                                          [--whitelisted-ratio=0..1] [--pool-size=N] [--cache-size=N]
+                                          [--cache-ttl=SECONDS] [--cache-stale=SECONDS] [--data-dir=PATH]""";
+
+        @Builder.Default
+        private final StorageType storageType = StorageType.H2;
+
+        @Builder.Default
+        private final int players = 100_000;
+
+        @Builder.Default
+        private final int servers = 4;
+
+        @Builder.Default
+        private final int events = 100_000;
+
+        @Builder.Default
+        private final int concurrency = 256;
+
+        @Builder.Default
+        private final double switchRatio = 0.5;
+
+        @Builder.Default
+        private final double cacheHitRatio = 0.8;
+
+        @Builder.Default
+        private final double whitelistedRatio = 0.9;
+
+        @Builder.Default
+        private final int poolSize = 10;
+
+        @Builder.Default
+        private final int cacheSize = 10_000;
+
+        @Builder.Default
+        private final int cacheTtlSeconds = 30;
+
+        @Builder.Default
+        private final int cacheStaleSeconds = 0;
+
+        private final String dataDir;
+
+        public static Options parse(String... args) {
+            OptionsBuilder builder = builder();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Invalid argument: " + arg);
+                }
+                String key = arg.substring(2, separator);
+                String value = arg.substring(separator + 1);
+                try {
+                    switch (key) {
+                        case "storage" -> builder.storageType(storage(value));
+                        case "players" -> builder.players(Integer.parseInt(value));
+                        case "servers" -> builder.servers(Integer.parseInt(value));
+                        case "events" -> builder.events(Integer.parseInt(value));
+                        case "concurrency" -> builder.concurrency(Integer.parseInt(value));
+                        case "switch-ratio" -> builder.switchRatio(Double.parseDouble(value));
+                        case "cache-hit-ratio" -> builder.cacheHitRatio(Double.parseDouble(value));
+                        case "whitelisted-ratio" -> builder.whitelistedRatio(Double.parseDouble(value));
+                        case "pool-size" -> builder.poolSize(Integer.parseInt(value));
+                        case "cache-size" -> builder.cacheSize(Integer.parseInt(value));
+                        case "cache-ttl" -> builder.cacheTtlSeconds(Integer.parseInt(value));
+                        case "cache-stale" -> builder.cacheStaleSeconds(Integer.parseInt(value));
+                        case "data-dir" -> builder.dataDir(value);
+                        default -> throw new IllegalArgumentException("Unknown option: --" + key);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for --" + key + ": " + value);
+                }
+            }
+            return builder.build().validate();
+        }
+
+        private static StorageType storage(String value) {
+            return switch (value.toUpperCase(Locale.ROOT)) {
+                case "H2" -> StorageType.H2;
+                case "SQLITE" -> StorageType.SQLITE;
+                default -> throw new IllegalArgumentException("Only H2 and SQLITE are supported: " + value);
+            };
+        }
+
+        private Options validate() {
+            if (players < 0 || servers < 1 || events < 0 || concurrency < 1 || poolSize < 1
+                    || cacheSize < 1 || cacheTtlSeconds < 1 || cacheStaleSeconds < 0) {
+                throw new IllegalArgumentException("Counts must be positive");
+            }
+            if (!isRatio(switchRatio) || !isRatio(cacheHitRatio) || !isRatio(whitelistedRatio)) {
+                throw new IllegalArgumentException("Ratios must be between 0 and 1");
+            }
+            return this;
+        }
+
+        private static boolean isRatio(double value) {
+            return value >= 0 && value <= 1;
+        }
+    }
+
+    public record Report(Options options, long elapsedNanos, LatencyHistogram.Snapshot logins,
+                         LatencyHistogram.Snapshot switches, long cacheHits, long cacheMisses,
+                         long allowed, long denied, long failed, LatencyHistogram.Snapshot poolWait) {
+
+        public double throughput() {
+            long decisions = logins.count() + switches.count();
+            return elapsedNanos == 0 ? 0 : decisions * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public void print(PrintStream out) {
+            out.printf(Locale.ROOT, "Storage: %s, players %d, servers %d, pool %d, cache %d (ttl %ds)%n",
+                    options.getStorageType(), options.getPlayers(), options.getServers(), options.getPoolSize(),
+                    options.getCacheSize(), options.getCacheTtlSeconds());
+            out.printf(Locale.ROOT, "Decisions: %d in %.2fs, %.0f/s at concurrency %d%n",
+                    logins.count() + switches.count(), elapsedNanos / 1_000_000_000.0, throughput(),
+                    options.getConcurrency());
+            out.printf(Locale.ROOT, "Results: allowed %d, denied %d, failed %d%n", allowed, denied, failed);
+            printLatency(out, "Logins", logins);
+            printLatency(out, "Switches", switches);
+            long lookups = cacheHits + cacheMisses;
+            out.printf(Locale.ROOT, "Cache: hits %d, misses %d, hit ratio %.2f%n",
+                    cacheHits, cacheMisses, lookups == 0 ? 0 : (double) cacheHits / lookups);
+            printLatency(out, "Pool wait", poolWait);
+        }
+
+        private static void printLatency(PrintStream out, String label, LatencyHistogram.Snapshot snapshot) {
+            out.printf(Locale.ROOT, "%s: %d, p50 %s, p99 %s, p999 %s, max %s%n", label, snapshot.count(),
+                    LatencyHistogram.formatMicros(snapshot.percentileMicros(50)),
+                    LatencyHistogram.formatMicros(snapshot.percentileMicros(99)),
+                    LatencyHistogram.formatMicros(snapshot.percentileMicros(99.9)),
+                    LatencyHistogram.formatMicros(snapshot.maxMicros()));
+        }
+    }
+}
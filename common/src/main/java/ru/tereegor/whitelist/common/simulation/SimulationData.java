@@ -0,0 +1,108 @@
+package ru.tereegor.whitelist.common.simulation;
+
+import ru.tereegor.whitelist.common.config.DatabaseConfig;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+
+public final class SimulationData {
+
+    private static final long PLAYER_SEED = 0x5EED_0001L;
+    private static final long UNKNOWN_SEED = 0x5EED_0002L;
+    private static final int BATCH_SIZE = 10_000;
+
+    private SimulationData() {}
+
+    public static void seed(DatabaseConfig config, int players, int servers) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(config.getJdbcUrl())) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO whitelist_servers (name) VALUES (?)")) {
+                for (int server = 0; server < servers; server++) {
+                    ps.setString(1, serverName(server));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            long createdAt = Instant.now().toEpochMilli();
+            try (PreparedStatement playerInsert = conn.prepareStatement(
+                         "INSERT INTO whitelist_players (uuid, name, name_lower) VALUES (?, ?, ?)");
+                 PreparedStatement memberInsert = conn.prepareStatement(
+                         "INSERT INTO whitelist_members (player_id, server_id, flags, expires_at) VALUES (?, ?, 1, NULL)");
+                 PreparedStatement detailsInsert = conn.prepareStatement("""
+                         INSERT INTO whitelist_member_details
+                         (player_id, server_id, registration_type, reason, added_by, inviter_telegram_id, created_at)
+                         VALUES (?, ?, 'TELEGRAM_CODE', 'Simulation', 'Telegram', NULL, ?)
+                         """)) {
+                for (int player = 0; player < players; player++) {
+                    int playerId = player + 1;
+                    int serverId = player % servers + 1;
+                    String name = playerName(player);
+
+                    playerInsert.setBytes(1, toBytes(playerUuid(player)));
+                    playerInsert.setString(2, name);
+                    playerInsert.setString(3, name.toLowerCase(Locale.ROOT));
+                    playerInsert.addBatch();
+
+                    memberInsert.setInt(1, playerId);
+                    memberInsert.setInt(2, serverId);
+                    memberInsert.addBatch();
+
+                    detailsInsert.setInt(1, playerId);
+                    detailsInsert.setInt(2, serverId);
+                    detailsInsert.setLong(3, createdAt);
+                    detailsInsert.addBatch();
+
+                    if (playerId % BATCH_SIZE == 0 || playerId == players) {
+                        playerInsert.executeBatch();
+                        memberInsert.executeBatch();
+                        detailsInsert.executeBatch();
+                    }
+                }
+            }
+            conn.commit();
+
+            try (PreparedStatement ps = conn.prepareStatement("SELECT MAX(id) FROM whitelist_players");
+                 ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) != players) {
+                    throw new SQLException("Unexpected player ids after seeding " + config.getStorageType());
+                }
+            }
+        }
+    }
+
+    public static UUID playerUuid(long player) {
+        return new UUID(PLAYER_SEED, player);
+    }
+
+    public static UUID unknownUuid(long player) {
+        return new UUID(UNKNOWN_SEED, player);
+    }
+
+    public static String playerName(long player) {
+        return "Player" + player;
+    }
+
+    public static String unknownName(long player) {
+        return "Guest" + player;
+    }
+
+    public static String serverName(long server) {
+        return "server-" + server;
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,186 @@
+package ru.tereegor.whitelist.common.storage;
+
+import ru.tereegor.whitelist.common.model.PlayerLink;
+import ru.tereegor.whitelist.common.model.RegistrationCode;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class CachingTelegramStorage implements TelegramStorage {
+
+    private final TelegramStorage delegate;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<Long, CacheEntry<Optional<PlayerLink>>> linksByTelegram = new ConcurrentHashMap<>();
+    private final Map<Long, CacheEntry<Optional<RegistrationCode>>> activeCodes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachingTelegramStorage(TelegramStorage delegate, int ttlSeconds, int maxSize) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public CompletableFuture<RegistrationCode> createCode(RegistrationCode code) {
+        invalidateCode(code.getTelegramId());
+        return delegate.createCode(code)
+                .thenApply(created -> {
+                    invalidateCode(created.getTelegramId());
+                    put(activeCodes, created.getTelegramId(), Optional.of(created));
+                    return created;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<RegistrationCode>> getCode(String code) {
+        return delegate.getCode(code);
+    }
+
+    @Override
+    public CompletableFuture<Optional<RegistrationCode>> getActiveCodeByTelegramId(Long telegramId) {
+        CacheEntry<Optional<RegistrationCode>> cached = activeCodes.get(telegramId);
+        if (cached != null && !cached.isExpired() && cached.value().map(RegistrationCode::isValid).orElse(true)) {
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        return load(activeCodes, telegramId, delegate::getActiveCodeByTelegramId);
+    }
+
+    @Override
+    public CompletableFuture<List<RegistrationCode>> getActiveCodes() {
+        return delegate.getActiveCodes();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useCode(String code, UUID playerUuid, String playerName) {
+        invalidateCodeValue(code);
+        return delegate.useCode(code, playerUuid, playerName)
+                .whenComplete((used, e) -> invalidateCodeValue(code));
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteExpiredCodes() {
+        return delegate.deleteExpiredCodes();
+    }
+
+    @Override
+    public CompletableFuture<Void> invalidateCodesForTelegramId(Long telegramId) {
+        invalidateCode(telegramId);
+        return delegate.invalidateCodesForTelegramId(telegramId)
+                .whenComplete((v, e) -> invalidateCode(telegramId));
+    }
+
+    @Override
+    public CompletableFuture<PlayerLink> createLink(PlayerLink link) {
+        invalidateLink(link.getTelegramId());
+        return delegate.createLink(link)
+                .whenComplete((created, e) -> invalidateLink(link.getTelegramId()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<PlayerLink>> getLinkByPlayer(UUID playerUuid) {
+        return delegate.getLinkByPlayer(playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<PlayerLink>> getLinkByTelegramId(Long telegramId) {
+        CacheEntry<Optional<PlayerLink>> cached = linksByTelegram.get(telegramId);
+        if (cached != null && !cached.isExpired()) {
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        return load(linksByTelegram, telegramId, delegate::getLinkByTelegramId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPlayerLinked(UUID playerUuid) {
+        return delegate.isPlayerLinked(playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isTelegramLinked(Long telegramId) {
+        return delegate.isTelegramLinked(telegramId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> unlinkPlayer(UUID playerUuid) {
+        invalidateLinksOf(playerUuid);
+        return delegate.unlinkPlayer(playerUuid)
+                .whenComplete((unlinked, e) -> invalidateLinksOf(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerLink>> getAllLinks() {
+        return delegate.getAllLinks();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        linksByTelegram.clear();
+        activeCodes.clear();
+    }
+
+    private <T> CompletableFuture<T> load(Map<Long, CacheEntry<T>> cache, Long key,
+                                          Function<Long, CompletableFuture<T>> loader) {
+        long loadGeneration = generation.get();
+        return loader.apply(key)
+                .thenApply(result -> {
+                    if (generation.get() == loadGeneration) {
+                        put(cache, key, result);
+                    }
+                    return result;
+                });
+    }
+
+    private <T> void put(Map<Long, CacheEntry<T>> cache, Long key, T value) {
+        ensureCapacity(cache);
+        cache.put(key, new CacheEntry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private void ensureCapacity(Map<Long, ? extends CacheEntry<?>> cache) {
+        if (cache.size() < maxSize) {
+            return;
+        }
+
+        cache.values().removeIf(CacheEntry::isExpired);
+
+        if (cache.size() >= maxSize) {
+            cache.keySet().stream().findFirst().ifPresent(cache::remove);
+        }
+    }
+
+    private void invalidateLink(Long telegramId) {
+        generation.incrementAndGet();
+        linksByTelegram.remove(telegramId);
+    }
+
+    private void invalidateLinksOf(UUID playerUuid) {
+        generation.incrementAndGet();
+        linksByTelegram.values().removeIf(entry -> entry.value()
+                .map(link -> playerUuid.equals(link.getPlayerUuid()))
+                .orElse(false));
+    }
+
+    private void invalidateCode(Long telegramId) {
+        generation.incrementAndGet();
+        activeCodes.remove(telegramId);
+    }
+
+    private void invalidateCodeValue(String code) {
+        generation.incrementAndGet();
+        activeCodes.values().removeIf(entry -> entry.value()
+                .map(cached -> cached.getCode().equalsIgnoreCase(code))
+                .orElse(false));
+    }
+
+    private record CacheEntry<T>(T value, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package ru.tereegor.whitelist.common.storage;
+
+import ru.tereegor.whitelist.common.config.DatabaseConfig;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+public class CircuitBreaker {
+
+    private static final int BUCKETS = 10;
+    private static final int HALF_OPEN_PROBES = 3;
+
+    private final boolean enabled;
+    private final double failureRate;
+    private final long slowCallNanos;
+    private final double slowCallRate;
+    private final int minimumCalls;
+    private final long bucketMillis;
+    private final long openMillis;
+    private final ScheduledExecutorService watchdog;
+    private final Consumer<State> listener;
+    private final Set<Call> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final long[] bucketStarts = new long[BUCKETS];
+    private final int[] calls = new int[BUCKETS];
+    private final int[] failures = new int[BUCKETS];
+    private final int[] slowCalls = new int[BUCKETS];
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    public CircuitBreaker(DatabaseConfig config, Consumer<State> listener) {
+        this.enabled = config.isCircuitBreaker();
+        this.failureRate = config.getCircuitFailureRate();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getCircuitSlowCallMillis()));
+        this.slowCallRate = config.getCircuitSlowCallRate();
+        this.minimumCalls = Math.max(1, config.getCircuitMinimumCalls());
+        this.bucketMillis = Math.max(1, config.getCircuitWindowSeconds() * 1000L / BUCKETS);
+        this.openMillis = config.getCircuitOpenSeconds() * 1000L;
+        this.listener = listener;
+        this.watchdog = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WhitelistTG-CircuitBreaker");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        if (watchdog != null) {
+            long period = Math.max(1, config.getCircuitSlowCallMillis() / 2);
+            watchdog.scheduleAtFixedRate(this::expireSlowCalls, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Call tryStart() {
+        if (!enabled) {
+            return Call.UNTRACKED;
+        }
+
+        State current = state;
+        if (current == State.CLOSED) {
+            return track(false);
+        }
+        if (current == State.OPEN && System.currentTimeMillis() - openedAt < openMillis) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return null;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesIssued >= HALF_OPEN_PROBES) {
+                    return null;
+                }
+                probesIssued++;
+                return track(true);
+            }
+        }
+        return track(false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void close() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        inFlight.clear();
+    }
+
+    private Call track(boolean probe) {
+        Call call = new Call(this, probe);
+        inFlight.add(call);
+        return call;
+    }
+
+    private void expireSlowCalls() {
+        long now = System.nanoTime();
+        for (Call call : inFlight) {
+            if (now - call.startNanos >= slowCallNanos) {
+                call.expire();
+            }
+        }
+    }
+
+    private void record(long nanos, boolean failed, boolean probe) {
+        boolean slow = nanos >= slowCallNanos;
+
+        synchronized (this) {
+            if (probe) {
+                if (state != State.HALF_OPEN) {
+                    return;
+                }
+                if (failed || slow) {
+                    transition(State.OPEN);
+                } else if (++probesSucceeded >= HALF_OPEN_PROBES) {
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state != State.CLOSED) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long bucketStart = now - now % bucketMillis;
+            int index = (int) ((now / bucketMillis) % BUCKETS);
+            if (bucketStarts[index] != bucketStart) {
+                bucketStarts[index] = bucketStart;
+                calls[index] = 0;
+                failures[index] = 0;
+                slowCalls[index] = 0;
+            }
+            calls[index]++;
+            if (failed) {
+                failures[index]++;
+            } else if (slow) {
+                slowCalls[index]++;
+            }
+
+            long windowStart = bucketStart - (BUCKETS - 1) * bucketMillis;
+            int totalCalls = 0;
+            int totalFailures = 0;
+            int totalSlow = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (bucketStarts[i] >= windowStart) {
+                    totalCalls += calls[i];
+                    totalFailures += failures[i];
+                    totalSlow += slowCalls[i];
+                }
+            }
+
+            if (totalCalls >= minimumCalls
+                    && (totalFailures >= totalCalls * failureRate || totalSlow >= totalCalls * slowCallRate)) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void transition(State next) {
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = System.currentTimeMillis();
+            case HALF_OPEN -> {
+                probesIssued = 0;
+                probesSucceeded = 0;
+            }
+            case CLOSED -> {
+                for (int i = 0; i < BUCKETS; i++) {
+                    bucketStarts[i] = 0;
+                }
+            }
+        }
+        listener.accept(next);
+    }
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN;
+
+        public int code() {
+            return switch (this) {
+                case CLOSED -> 0;
+                case HALF_OPEN -> 1;
+                case OPEN -> 2;
+            };
+        }
+    }
+
+    public static final class Call {
+
+        private static final Call UNTRACKED = new Call(null, false);
+
+        private final CircuitBreaker breaker;
+        private final boolean probe;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private Call(CircuitBreaker breaker, boolean probe) {
+            this.breaker = breaker;
+            this.probe = probe;
+        }
+
+        public void complete(boolean failed) {
+            if (breaker == null) {
+                return;
+            }
+            breaker.inFlight.remove(this);
+            if (recorded.compareAndSet(false, true)) {
+                breaker.record(System.nanoTime() - startNanos, failed, probe);
+            }
+        }
+
+        private void expire() {
+            breaker.inFlight.remove(this);
+            if (recorded.compareAndSet(false, true)) {
+                breaker.record(breaker.slowCallNanos, false, probe);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.tereegor.whitelist.common.storage;
+
+import lombok.Getter;
+
+@Getter
+public class DuplicateCodeException extends RuntimeException {
+
+    private final String code;
+
+    public DuplicateCodeException(String code, Throwable cause) {
+        super("Registration code already exists: " + code, cause);
+        this.code = code;
+    }
+}
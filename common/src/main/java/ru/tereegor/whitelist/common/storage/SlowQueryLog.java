@@ -0,0 +1,182 @@
+package ru.tereegor.whitelist.common.storage;
+
+import ru.tereegor.whitelist.common.metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public class SlowQueryLog {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_SQL_LENGTH = 300;
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final Consumer<String> logger;
+    private final ThreadLocal<Context> context = new ThreadLocal<>();
+
+    public SlowQueryLog(boolean enabled, long thresholdMillis, double sampleRate, Consumer<String> logger) {
+        this.enabled = enabled && sampleRate > 0;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMillis));
+        this.sampleRate = sampleRate;
+        this.logger = logger;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> T within(String operation, Supplier<T> task) {
+        Context previous = context.get();
+        context.set(new Context(operation, "/* wltg:" + operation + " */ "));
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                context.set(previous);
+            } else {
+                context.remove();
+            }
+        }
+    }
+
+    public void recordPoolWait(long nanos) {
+        Context current = context.get();
+        if (current != null) {
+            current.poolWaitNanos += nanos;
+        }
+    }
+
+    public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        Context current = context.get();
+        if (current == null) {
+            return conn.prepareStatement(sql);
+        }
+        String tagged = current.tag + sql;
+        return timed(conn.prepareStatement(tagged), current, tagged);
+    }
+
+    public PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        Context current = context.get();
+        if (current == null) {
+            return conn.prepareStatement(sql, autoGeneratedKeys);
+        }
+        String tagged = current.tag + sql;
+        return timed(conn.prepareStatement(tagged, autoGeneratedKeys), current, tagged);
+    }
+
+    private PreparedStatement timed(PreparedStatement statement, Context current, String sql) {
+        if (!enabled || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new TimingHandler(statement, current, sql));
+    }
+
+    private void report(Context current, String sql, long nanos, List<String> parameters, int batches) {
+        StringBuilder message = new StringBuilder("Slow query")
+                .append(" op=").append(current.operation)
+                .append(" time=").append(LatencyHistogram.formatMicros(TimeUnit.NANOSECONDS.toMicros(nanos)))
+                .append(" pool-wait=")
+                .append(LatencyHistogram.formatMicros(TimeUnit.NANOSECONDS.toMicros(current.poolWaitNanos)))
+                .append(" params=").append(parameters);
+        if (batches > 0) {
+            message.append(" batch=").append(batches);
+        }
+        message.append(" sql=\"").append(compact(sql)).append('"');
+        logger.accept(message.toString());
+    }
+
+    private static String compact(String sql) {
+        String compact = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        return compact.length() > MAX_SQL_LENGTH ? compact.substring(0, MAX_SQL_LENGTH) + "..." : compact;
+    }
+
+    private static String typeOf(Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("setNull")) {
+            return "null";
+        }
+        if (name.equals("setObject") && args.length > 1) {
+            return args[1] == null ? "null" : args[1].getClass().getSimpleName().toLowerCase(Locale.ROOT);
+        }
+        return name.substring(3).toLowerCase(Locale.ROOT);
+    }
+
+    private static class Context {
+        private final String operation;
+        private final String tag;
+        private long poolWaitNanos;
+
+        private Context(String operation, String tag) {
+            this.operation = operation;
+            this.tag = tag;
+        }
+    }
+
+    private class TimingHandler implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final Context context;
+        private final String sql;
+        private final List<String> parameters = new ArrayList<>();
+        private int batches;
+
+        private TimingHandler(PreparedStatement statement, Context context, String sql) {
+            this.statement = statement;
+            this.context = context;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (args != null && args.length >= 2 && args[0] instanceof Integer index
+                    && name.startsWith("set") && index > 0) {
+                while (parameters.size() < index) {
+                    parameters.add("?");
+                }
+                parameters.set(index - 1, typeOf(method, args));
+            } else if (name.equals("addBatch") && args == null) {
+                batches++;
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return invokeTarget(method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed >= thresholdNanos) {
+                        report(context, sql, elapsed, List.copyOf(parameters), batches);
+                    }
+                }
+            }
+            return invokeTarget(method, args);
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -2,22 +2,53 @@ package ru.tereegor.whitelist.common.storage;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import ru.tereegor.whitelist.common.config.DatabaseConfig;
+import ru.tereegor.whitelist.common.metrics.PoolStats;
+import ru.tereegor.whitelist.common.metrics.StorageMetrics;
 import ru.tereegor.whitelist.common.model.*;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class SqlStorage implements WhitelistStorage, TelegramStorage {
     
+    private static final int FLAG_ACTIVE = 1;
+    private static final int UNKNOWN_ID = -1;
+    private static final int MAX_IN_LIST = 512;
+    private static final long REPLICA_RETRY_MILLIS = 30_000;
+    private static final String ENTRY_SELECT = """
+            SELECT p.uuid, p.name AS player_name, s.name AS server_name, m.flags, m.expires_at,
+            d.registration_type, d.reason, d.added_by, d.inviter_telegram_id, d.created_at
+            FROM whitelist_members m
+            JOIN whitelist_players p ON p.id = m.player_id
+            JOIN whitelist_servers s ON s.id = m.server_id
+            LEFT JOIN whitelist_member_details d ON d.player_id = m.player_id AND d.server_id = m.server_id
+            """;
+    
     private final DatabaseConfig config;
     private final ExecutorService executor;
+    private final Map<String, Integer> serverIds = new ConcurrentHashMap<>();
+    private final String activeFilter;
+    private final StorageMetrics metrics = new StorageMetrics();
+    private final SlowQueryLog slowQueries;
+    private final CircuitBreaker circuitBreaker;
     private HikariDataSource dataSource;
+    private HikariDataSource replicaSource;
+    private volatile long lastWriteAt;
+    private volatile long replicaDownUntil;
+    private volatile boolean ready;
     private Consumer<String> logger;
     
     public SqlStorage(DatabaseConfig config) {
@@ -28,6 +59,15 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
         this.config = config;
         this.executor = Executors.newFixedThreadPool(4);
         this.logger = logger;
+        this.slowQueries = new SlowQueryLog(config.isSlowQueryLog(), config.getSlowQueryThresholdMillis(),
+                config.getSlowQuerySampleRate(), logger);
+        this.circuitBreaker = new CircuitBreaker(config, state -> {
+            metrics.setCircuitState(state.code());
+            logger.accept("Database circuit breaker is now " + state);
+        });
+        this.activeFilter = config.getStorageType() == StorageType.H2
+                ? "BITAND(m.flags, " + FLAG_ACTIVE + ") <> 0"
+                : "(m.flags & " + FLAG_ACTIVE + ") <> 0";
     }
     
     @Override
@@ -52,7 +92,27 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 
                 this.dataSource = new HikariDataSource(hikariConfig);
                 
+                if (config.hasReplica()) {
+                    HikariConfig replicaConfig = new HikariConfig();
+                    replicaConfig.setJdbcUrl(config.getReplicaJdbcUrl());
+                    replicaConfig.setDriverClassName(config.getDriverClassName());
+                    replicaConfig.setUsername(config.getUsername());
+                    replicaConfig.setPassword(config.getPassword());
+                    replicaConfig.setMaximumPoolSize(config.getReplicaMaximumPoolSize());
+                    replicaConfig.setMinimumIdle(config.getReplicaMinimumIdle());
+                    replicaConfig.setConnectionTimeout(config.getReplicaConnectionTimeout());
+                    replicaConfig.setIdleTimeout(config.getIdleTimeout());
+                    replicaConfig.setMaxLifetime(config.getMaxLifetime());
+                    replicaConfig.setInitializationFailTimeout(-1);
+                    replicaConfig.setReadOnly(true);
+                    replicaConfig.setPoolName("WhitelistReplicaPool");
+                    
+                    this.replicaSource = new HikariDataSource(replicaConfig);
+                    logger.accept("Routing reads to replica " + config.getReplicaHost() + ":" + config.getReplicaPort());
+                }
+                
                 createTables();
+                ready = true;
                 logger.accept("Database initialized successfully with " + config.getStorageType());
             } catch (Exception e) {
                 throw new RuntimeException("Failed to initialize database", e);
@@ -63,41 +123,82 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
     private void createTables() throws SQLException {
         boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
         
-        try (Connection conn = dataSource.getConnection();
+        try (Connection conn = connection();
              Statement stmt = conn.createStatement()) {
             
-            String entriesTable = isSqlite ? """
-                CREATE TABLE IF NOT EXISTS whitelist_entries (
+            String playersTable = isSqlite ? """
+                CREATE TABLE IF NOT EXISTS whitelist_players (
                     id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    player_uuid TEXT NOT NULL,
-                    player_name TEXT NOT NULL,
-                    server_name TEXT NOT NULL,
+                    uuid BLOB NOT NULL UNIQUE,
+                    name TEXT NOT NULL,
+                    name_lower TEXT NOT NULL
+                )
+            """ : """
+                CREATE TABLE IF NOT EXISTS whitelist_players (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    uuid BINARY(16) NOT NULL UNIQUE,
+                    name VARCHAR(32) NOT NULL,
+                    name_lower VARCHAR(32) NOT NULL
+                )
+            """;
+            stmt.execute(playersTable);
+            
+            String serversTable = isSqlite ? """
+                CREATE TABLE IF NOT EXISTS whitelist_servers (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    name TEXT NOT NULL UNIQUE
+                )
+            """ : """
+                CREATE TABLE IF NOT EXISTS whitelist_servers (
+                    id INT AUTO_INCREMENT PRIMARY KEY,
+                    name VARCHAR(64) NOT NULL UNIQUE
+                )
+            """;
+            stmt.execute(serversTable);
+            
+            String membersTable = isSqlite ? """
+                CREATE TABLE IF NOT EXISTS whitelist_members (
+                    player_id INTEGER NOT NULL,
+                    server_id INTEGER NOT NULL,
+                    flags INTEGER NOT NULL DEFAULT 1,
+                    expires_at INTEGER NULL,
+                    PRIMARY KEY (player_id, server_id)
+                ) WITHOUT ROWID
+            """ : """
+                CREATE TABLE IF NOT EXISTS whitelist_members (
+                    player_id INT NOT NULL,
+                    server_id INT NOT NULL,
+                    flags INT NOT NULL DEFAULT 1,
+                    expires_at BIGINT NULL,
+                    PRIMARY KEY (player_id, server_id)
+                )
+            """;
+            stmt.execute(membersTable);
+            
+            String detailsTable = isSqlite ? """
+                CREATE TABLE IF NOT EXISTS whitelist_member_details (
+                    player_id INTEGER NOT NULL,
+                    server_id INTEGER NOT NULL,
                     registration_type TEXT DEFAULT 'MANUAL',
                     reason TEXT,
                     added_by TEXT,
                     inviter_telegram_id INTEGER NULL,
-                    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
-                    expires_at DATETIME NULL,
-                    active INTEGER DEFAULT 1,
-                    UNIQUE (player_uuid, server_name)
+                    created_at INTEGER NOT NULL,
+                    PRIMARY KEY (player_id, server_id)
                 )
             """ : """
-                CREATE TABLE IF NOT EXISTS whitelist_entries (
-                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                    player_uuid VARCHAR(36) NOT NULL,
-                    player_name VARCHAR(32) NOT NULL,
-                    server_name VARCHAR(64) NOT NULL,
+                CREATE TABLE IF NOT EXISTS whitelist_member_details (
+                    player_id INT NOT NULL,
+                    server_id INT NOT NULL,
                     registration_type VARCHAR(32) DEFAULT 'MANUAL',
                     reason TEXT,
                     added_by VARCHAR(64),
                     inviter_telegram_id BIGINT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    expires_at TIMESTAMP NULL,
-                    active BOOLEAN DEFAULT TRUE,
-                    UNIQUE KEY unique_player_server (player_uuid, server_name)
+                    created_at BIGINT NOT NULL,
+                    PRIMARY KEY (player_id, server_id)
                 )
             """;
-            stmt.execute(entriesTable);
+            stmt.execute(detailsTable);
             
             String codesTable = isSqlite ? """
                 CREATE TABLE IF NOT EXISTS registration_codes (
@@ -158,11 +259,11 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             stmt.execute(linksTable);
             
             try {
-                stmt.execute("CREATE INDEX IF NOT EXISTS idx_entries_uuid ON whitelist_entries(player_uuid)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_name ON whitelist_players(name_lower)");
             } catch (SQLException ignored) {}
             
             try {
-                stmt.execute("CREATE INDEX IF NOT EXISTS idx_entries_server ON whitelist_entries(server_name)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_members_server ON whitelist_members(server_id, player_id)");
             } catch (SQLException ignored) {}
             
             try {
@@ -172,111 +273,419 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             try {
                 stmt.execute("CREATE INDEX IF NOT EXISTS idx_links_telegram ON player_links(telegram_id)");
             } catch (SQLException ignored) {}
+            
+            migrateLegacyEntries(conn, stmt);
+        }
+    }
+    
+    private void migrateLegacyEntries(Connection conn, Statement stmt) throws SQLException {
+        try {
+            stmt.execute("ALTER TABLE whitelist_entries RENAME TO whitelist_entries_legacy");
+        } catch (SQLException e) {
+            return;
+        }
+        
+        logger.accept("Migrating whitelist_entries to the normalised schema...");
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        int migrated = 0;
+        
+        try {
+            List<WhitelistEntry> entries = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM whitelist_entries_legacy")) {
+                while (rs.next()) {
+                    entries.add(mapLegacyEntry(rs));
+                }
+            }
+            
+            for (WhitelistEntry entry : entries) {
+                writeEntry(conn, entry);
+                migrated++;
+            }
+            
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            conn.setAutoCommit(true);
+            try {
+                stmt.execute("ALTER TABLE whitelist_entries_legacy RENAME TO whitelist_entries");
+            } catch (SQLException restore) {
+                e.addSuppressed(restore);
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        
+        logger.accept("Migrated " + migrated + " whitelist entries, old table kept as whitelist_entries_legacy");
+    }
+    
+    private WhitelistEntry mapLegacyEntry(ResultSet rs) throws SQLException {
+        Long inviterTgId = rs.getLong("inviter_telegram_id");
+        if (rs.wasNull()) inviterTgId = null;
+        
+        String regType = rs.getString("registration_type");
+        RegistrationType registrationType = regType != null ?
+                RegistrationType.valueOf(regType) : RegistrationType.MANUAL;
+        
+        Instant createdAt = readInstant(rs, "created_at");
+        
+        return WhitelistEntry.builder()
+                .playerUuid(UUID.fromString(rs.getString("player_uuid")))
+                .playerName(rs.getString("player_name"))
+                .serverName(rs.getString("server_name"))
+                .registrationType(registrationType)
+                .reason(rs.getString("reason"))
+                .addedBy(rs.getString("added_by"))
+                .inviterTelegramId(inviterTgId)
+                .createdAt(createdAt != null ? createdAt : Instant.now())
+                .expiresAt(readInstant(rs, "expires_at"))
+                .active(rs.getBoolean("active"))
+                .build();
+    }
+    
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public PoolStats getPoolStats() {
+        HikariDataSource source = dataSource;
+        if (source == null || source.isClosed()) {
+            return PoolStats.EMPTY;
+        }
+        
+        HikariPoolMXBean pool = source.getHikariPoolMXBean();
+        if (pool == null) {
+            return PoolStats.EMPTY;
+        }
+        return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getTotalConnections(), pool.getThreadsAwaitingConnection(), source.getMaximumPoolSize());
+    }
+    
+    private Connection connection() throws SQLException {
+        Connection conn = borrow(dataSource);
+        if (replicaSource == null) {
+            return conn;
+        }
+        
+        lastWriteAt = System.currentTimeMillis();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("close")) {
+                            lastWriteAt = System.currentTimeMillis();
+                        }
+                    }
+                });
+    }
+    
+    private Connection primaryReadConnection() throws SQLException {
+        metrics.recordRead(false);
+        return borrow(dataSource);
+    }
+    
+    private Connection readConnection() throws SQLException {
+        HikariDataSource replica = replicaSource;
+        long now = System.currentTimeMillis();
+        if (replica == null || now < replicaDownUntil || now - lastWriteAt < config.getReadYourWritesMillis()) {
+            metrics.recordRead(false);
+            return borrow(dataSource);
+        }
+        
+        try {
+            Connection conn = borrow(replica);
+            metrics.recordRead(true);
+            return conn;
+        } catch (SQLException e) {
+            replicaDownUntil = System.currentTimeMillis() + REPLICA_RETRY_MILLIS;
+            logger.accept("Read replica unavailable, reading from the primary for "
+                    + REPLICA_RETRY_MILLIS / 1000 + "s: " + e.getMessage());
+            metrics.recordReplicaFallback();
+            metrics.recordRead(false);
+            return borrow(dataSource);
+        }
+    }
+    
+    private Connection borrow(HikariDataSource source) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return source.getConnection();
+        } finally {
+            long waited = System.nanoTime() - start;
+            metrics.recordPoolWait(waited);
+            slowQueries.recordPoolWait(waited);
+        }
+    }
+    
+    private <T> CompletableFuture<T> supply(String operation, Supplier<T> task) {
+        if (!ready) {
+            return CompletableFuture.failedFuture(new StorageUnavailableException("is starting", operation));
+        }
+        
+        CircuitBreaker.Call call = circuitBreaker.tryStart();
+        if (call == null) {
+            metrics.recordRejected();
+            return CompletableFuture.failedFuture(new StorageUnavailableException(operation));
+        }
+        
+        long start = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> slowQueries.within(operation, task), executor)
+                .whenComplete((result, e) -> {
+                    metrics.record(operation, System.nanoTime() - start, e != null);
+                    call.complete(isOutage(e));
+                });
+    }
+    
+    private CompletableFuture<Void> run(String operation, Runnable task) {
+        return supply(operation, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    private static boolean isOutage(Throwable e) {
+        if (e == null) {
+            return false;
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return !(cause instanceof DuplicateCodeException);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+    
+    private Instant readInstant(ResultSet rs, String column) throws SQLException {
+        try {
+            Timestamp ts = rs.getTimestamp(column);
+            return ts != null ? ts.toInstant() : null;
+        } catch (Exception e) {
+            long millis = rs.getLong(column);
+            return rs.wasNull() ? null : Instant.ofEpochMilli(millis);
         }
     }
     
     @Override
     public CompletableFuture<Void> close() {
         return CompletableFuture.runAsync(() -> {
+            ready = false;
             if (dataSource != null && !dataSource.isClosed()) {
                 dataSource.close();
             }
+            if (replicaSource != null && !replicaSource.isClosed()) {
+                replicaSource.close();
+            }
+            circuitBreaker.close();
             executor.shutdown();
         });
     }
     
+    
     @Override
     public CompletableFuture<WhitelistEntry> addEntry(WhitelistEntry entry) {
-        return CompletableFuture.supplyAsync(() -> {
-            boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
-            String sql = isSqlite ? """
-                INSERT INTO whitelist_entries 
-                (player_uuid, player_name, server_name, registration_type, reason, added_by, inviter_telegram_id, created_at, expires_at, active)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                ON CONFLICT(player_uuid, server_name) DO UPDATE SET
-                player_name = excluded.player_name,
-                registration_type = excluded.registration_type,
-                reason = excluded.reason,
-                added_by = excluded.added_by,
-                inviter_telegram_id = excluded.inviter_telegram_id,
-                created_at = excluded.created_at,
-                expires_at = excluded.expires_at,
-                active = excluded.active
-            """ : """
-                INSERT INTO whitelist_entries 
-                (player_uuid, player_name, server_name, registration_type, reason, added_by, inviter_telegram_id, created_at, expires_at, active)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                ON DUPLICATE KEY UPDATE 
-                player_name = VALUES(player_name),
-                registration_type = VALUES(registration_type),
-                reason = VALUES(reason),
-                added_by = VALUES(added_by),
-                inviter_telegram_id = VALUES(inviter_telegram_id),
-                created_at = VALUES(created_at),
-                expires_at = VALUES(expires_at),
-                active = VALUES(active)
-            """;
-            
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                
-                ps.setString(1, entry.getPlayerUuid().toString());
-                ps.setString(2, entry.getPlayerName());
-                ps.setString(3, entry.getServerName());
-                ps.setString(4, entry.getRegistrationType().name());
-                ps.setString(5, entry.getReason());
-                ps.setString(6, entry.getAddedBy());
-                if (entry.getInviterTelegramId() != null) {
-                    ps.setLong(7, entry.getInviterTelegramId());
-                } else {
-                    ps.setNull(7, Types.BIGINT);
-                }
-                ps.setTimestamp(8, Timestamp.from(entry.getCreatedAt() != null ? entry.getCreatedAt() : Instant.now()));
-                ps.setTimestamp(9, entry.getExpiresAt() != null ? Timestamp.from(entry.getExpiresAt()) : null);
-                ps.setBoolean(10, entry.isActive());
-                
-                ps.executeUpdate();
-                
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        entry.setId(rs.getLong(1));
-                    }
+        return supply("addEntry", () -> {
+            try (Connection conn = connection()) {
+                conn.setAutoCommit(false);
+                try {
+                    writeEntry(conn, entry);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
-                
                 return entry;
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to add whitelist entry", e);
             }
-        }, executor);
+        });
+    }
+    
+    private void writeEntry(Connection conn, WhitelistEntry entry) throws SQLException {
+        boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
+        int playerId = upsertPlayer(conn, entry.getPlayerUuid(), entry.getPlayerName());
+        int serverId = resolveServerId(conn, entry.getServerName(), true);
+        
+        String memberSql = isSqlite ? """
+            INSERT INTO whitelist_members (player_id, server_id, flags, expires_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT(player_id, server_id) DO UPDATE SET
+            flags = excluded.flags,
+            expires_at = excluded.expires_at
+        """ : """
+            INSERT INTO whitelist_members (player_id, server_id, flags, expires_at)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+            flags = VALUES(flags),
+            expires_at = VALUES(expires_at)
+        """;
+        
+        try (PreparedStatement ps = slowQueries.prepare(conn, memberSql)) {
+            ps.setInt(1, playerId);
+            ps.setInt(2, serverId);
+            ps.setInt(3, flagsOf(entry));
+            setMillis(ps, 4, entry.getExpiresAt());
+            ps.executeUpdate();
+        }
+        
+        String detailsSql = isSqlite ? """
+            INSERT INTO whitelist_member_details
+            (player_id, server_id, registration_type, reason, added_by, inviter_telegram_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT(player_id, server_id) DO UPDATE SET
+            registration_type = excluded.registration_type,
+            reason = excluded.reason,
+            added_by = excluded.added_by,
+            inviter_telegram_id = excluded.inviter_telegram_id,
+            created_at = excluded.created_at
+        """ : """
+            INSERT INTO whitelist_member_details
+            (player_id, server_id, registration_type, reason, added_by, inviter_telegram_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+            registration_type = VALUES(registration_type),
+            reason = VALUES(reason),
+            added_by = VALUES(added_by),
+            inviter_telegram_id = VALUES(inviter_telegram_id),
+            created_at = VALUES(created_at)
+        """;
+        
+        try (PreparedStatement ps = slowQueries.prepare(conn, detailsSql)) {
+            ps.setInt(1, playerId);
+            ps.setInt(2, serverId);
+            ps.setString(3, entry.getRegistrationType().name());
+            ps.setString(4, entry.getReason());
+            ps.setString(5, entry.getAddedBy());
+            if (entry.getInviterTelegramId() != null) {
+                ps.setLong(6, entry.getInviterTelegramId());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setLong(7, (entry.getCreatedAt() != null ? entry.getCreatedAt() : Instant.now()).toEpochMilli());
+            ps.executeUpdate();
+        }
+    }
+    
+    private int upsertPlayer(Connection conn, UUID playerUuid, String playerName) throws SQLException {
+        boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
+        String sql = isSqlite ? """
+            INSERT INTO whitelist_players (uuid, name, name_lower) VALUES (?, ?, ?)
+            ON CONFLICT(uuid) DO UPDATE SET name = excluded.name, name_lower = excluded.name_lower
+        """ : """
+            INSERT INTO whitelist_players (uuid, name, name_lower) VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE name = VALUES(name), name_lower = VALUES(name_lower)
+        """;
+        
+        try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+            ps.setBytes(1, toBytes(playerUuid));
+            ps.setString(2, playerName);
+            ps.setString(3, playerName.toLowerCase(Locale.ROOT));
+            ps.executeUpdate();
+        }
+        
+        try (PreparedStatement ps = slowQueries.prepare(conn, "SELECT id FROM whitelist_players WHERE uuid = ?")) {
+            ps.setBytes(1, toBytes(playerUuid));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("Player row missing after upsert: " + playerUuid);
+    }
+    
+    private int resolveServerId(Connection conn, String serverName, boolean create) throws SQLException {
+        Integer cached = serverIds.get(serverName);
+        if (cached != null) {
+            return cached;
+        }
+        
+        if (create) {
+            boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
+            String sql = isSqlite
+                    ? "INSERT OR IGNORE INTO whitelist_servers (name) VALUES (?)"
+                    : "INSERT IGNORE INTO whitelist_servers (name) VALUES (?)";
+            try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                ps.setString(1, serverName);
+                ps.executeUpdate();
+            }
+        }
+        
+        try (PreparedStatement ps = slowQueries.prepare(conn, "SELECT id FROM whitelist_servers WHERE name = ?")) {
+            ps.setString(1, serverName);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    int id = rs.getInt(1);
+                    serverIds.put(serverName, id);
+                    return id;
+                }
+            }
+        }
+        return UNKNOWN_ID;
     }
     
     @Override
     public CompletableFuture<Boolean> removeEntry(UUID playerUuid, String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "DELETE FROM whitelist_entries WHERE player_uuid = ? AND server_name = ?";
+        return supply("removeEntry", () -> {
+            String sql = """
+                DELETE FROM whitelist_members
+                WHERE player_id = (SELECT id FROM whitelist_players WHERE uuid = ?) AND server_id = ?
+            """;
+            String detailsSql = """
+                DELETE FROM whitelist_member_details
+                WHERE player_id = (SELECT id FROM whitelist_players WHERE uuid = ?) AND server_id = ?
+            """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, playerUuid.toString());
-                ps.setString(2, serverName);
+            try (Connection conn = connection()) {
+                int serverId = resolveServerId(conn, serverName, false);
+                if (serverId == UNKNOWN_ID) {
+                    return false;
+                }
                 
-                return ps.executeUpdate() > 0;
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement ps = slowQueries.prepare(conn, detailsSql)) {
+                        ps.setBytes(1, toBytes(playerUuid));
+                        ps.setInt(2, serverId);
+                        ps.executeUpdate();
+                    }
+                    
+                    boolean removed;
+                    try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                        ps.setBytes(1, toBytes(playerUuid));
+                        ps.setInt(2, serverId);
+                        removed = ps.executeUpdate() > 0;
+                    }
+                    conn.commit();
+                    return removed;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to remove whitelist entry", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Optional<WhitelistEntry>> getEntry(UUID playerUuid, String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM whitelist_entries WHERE player_uuid = ? AND server_name = ?";
+        return supply("getEntry", () -> {
+            String sql = ENTRY_SELECT + " WHERE p.uuid = ? AND s.name = ?";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
-                ps.setString(1, playerUuid.toString());
+                ps.setBytes(1, toBytes(playerUuid));
                 ps.setString(2, serverName);
                 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -288,18 +697,18 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get whitelist entry", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<List<WhitelistEntry>> getEntriesByPlayer(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM whitelist_entries WHERE player_uuid = ?";
+        return supply("getEntriesByPlayer", () -> {
+            String sql = ENTRY_SELECT + " WHERE p.uuid = ?";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
-                ps.setString(1, playerUuid.toString());
+                ps.setBytes(1, toBytes(playerUuid));
                 
                 List<WhitelistEntry> entries = new ArrayList<>();
                 try (ResultSet rs = ps.executeQuery()) {
@@ -311,39 +720,43 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get entries by player", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<List<WhitelistEntry>> getEntriesByServer(String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM whitelist_entries WHERE server_name = ? AND active = TRUE";
+        return supply("getEntriesByServer", () -> {
+            String sql = ENTRY_SELECT + " WHERE m.server_id = ? AND " + activeFilter;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, serverName);
-                
+            try (Connection conn = readConnection()) {
+                int serverId = resolveServerId(conn, serverName, false);
                 List<WhitelistEntry> entries = new ArrayList<>();
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        entries.add(mapEntry(rs));
+                if (serverId == UNKNOWN_ID) {
+                    return entries;
+                }
+                
+                try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                    ps.setInt(1, serverId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            entries.add(mapEntry(rs));
+                        }
                     }
                 }
                 return entries;
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get entries by server", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<List<WhitelistEntry>> getAllActiveEntries() {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM whitelist_entries WHERE active = TRUE";
+        return supply("getAllActiveEntries", () -> {
+            String sql = ENTRY_SELECT + " WHERE " + activeFilter;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql);
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql);
                  ResultSet rs = ps.executeQuery()) {
                 
                 List<WhitelistEntry> entries = new ArrayList<>();
@@ -354,70 +767,85 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get all active entries", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> isWhitelisted(UUID playerUuid, String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("isWhitelisted", () -> {
             String sql = """
-                SELECT 1 FROM whitelist_entries 
-                WHERE player_uuid = ? AND server_name = ? AND active = TRUE
-                AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-            """;
+                SELECT 1 FROM whitelist_members m
+                JOIN whitelist_players p ON p.id = m.player_id
+                WHERE p.uuid = ? AND m.server_id = ? AND %s
+                AND (m.expires_at IS NULL OR m.expires_at > ?)
+            """.formatted(activeFilter);
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, playerUuid.toString());
-                ps.setString(2, serverName);
+            try (Connection conn = readConnection()) {
+                int serverId = resolveServerId(conn, serverName, false);
+                if (serverId == UNKNOWN_ID) {
+                    return false;
+                }
                 
-                try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next();
+                try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                    ps.setBytes(1, toBytes(playerUuid));
+                    ps.setInt(2, serverId);
+                    ps.setLong(3, System.currentTimeMillis());
+                    
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next();
+                    }
                 }
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to check whitelist status", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> isWhitelistedByName(String playerName, String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("isWhitelistedByName", () -> {
             String sql = """
-                SELECT 1 FROM whitelist_entries 
-                WHERE LOWER(player_name) = LOWER(?) AND server_name = ? AND active = TRUE
-                AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-            """;
+                SELECT 1 FROM whitelist_members m
+                JOIN whitelist_players p ON p.id = m.player_id
+                WHERE p.name_lower = ? AND m.server_id = ? AND %s
+                AND (m.expires_at IS NULL OR m.expires_at > ?)
+            """.formatted(activeFilter);
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, playerName);
-                ps.setString(2, serverName);
+            try (Connection conn = readConnection()) {
+                int serverId = resolveServerId(conn, serverName, false);
+                if (serverId == UNKNOWN_ID) {
+                    return false;
+                }
                 
-                try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next();
+                try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                    ps.setString(1, playerName.toLowerCase(Locale.ROOT));
+                    ps.setInt(2, serverId);
+                    ps.setLong(3, System.currentTimeMillis());
+                    
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next();
+                    }
                 }
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to check whitelist status by name", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> isNicknameTaken(String playerName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("isNicknameTaken", () -> {
             String sql = """
-                SELECT 1 FROM whitelist_entries 
-                WHERE LOWER(player_name) = LOWER(?) AND active = TRUE
+                SELECT 1 FROM whitelist_members m
+                JOIN whitelist_players p ON p.id = m.player_id
+                WHERE p.name_lower = ? AND %s
                 LIMIT 1
-            """;
+            """.formatted(activeFilter);
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = primaryReadConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
-                ps.setString(1, playerName);
+                ps.setString(1, playerName.toLowerCase(Locale.ROOT));
                 
                 try (ResultSet rs = ps.executeQuery()) {
                     return rs.next();
@@ -425,92 +853,236 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to check if nickname is taken", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> updateEntry(WhitelistEntry entry) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = """
-                UPDATE whitelist_entries 
-                SET player_name = ?, reason = ?, added_by = ?, expires_at = ?, active = ?
-                WHERE player_uuid = ? AND server_name = ?
+        return supply("updateEntry", () -> {
+            String playerSql = "UPDATE whitelist_players SET name = ?, name_lower = ? WHERE uuid = ?";
+            String memberSql = """
+                UPDATE whitelist_members SET flags = ?, expires_at = ?
+                WHERE player_id = (SELECT id FROM whitelist_players WHERE uuid = ?) AND server_id = ?
+            """;
+            String detailsSql = """
+                UPDATE whitelist_member_details SET reason = ?, added_by = ?
+                WHERE player_id = (SELECT id FROM whitelist_players WHERE uuid = ?) AND server_id = ?
             """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, entry.getPlayerName());
-                ps.setString(2, entry.getReason());
-                ps.setString(3, entry.getAddedBy());
-                ps.setTimestamp(4, entry.getExpiresAt() != null ? Timestamp.from(entry.getExpiresAt()) : null);
-                ps.setBoolean(5, entry.isActive());
-                ps.setString(6, entry.getPlayerUuid().toString());
-                ps.setString(7, entry.getServerName());
+            try (Connection conn = connection()) {
+                int serverId = resolveServerId(conn, entry.getServerName(), false);
+                if (serverId == UNKNOWN_ID) {
+                    return false;
+                }
                 
-                return ps.executeUpdate() > 0;
+                conn.setAutoCommit(false);
+                try (PreparedStatement player = slowQueries.prepare(conn, playerSql);
+                     PreparedStatement member = slowQueries.prepare(conn, memberSql);
+                     PreparedStatement details = slowQueries.prepare(conn, detailsSql)) {
+                    
+                    player.setString(1, entry.getPlayerName());
+                    player.setString(2, entry.getPlayerName().toLowerCase(Locale.ROOT));
+                    player.setBytes(3, toBytes(entry.getPlayerUuid()));
+                    player.executeUpdate();
+                    
+                    member.setInt(1, flagsOf(entry));
+                    setMillis(member, 2, entry.getExpiresAt());
+                    member.setBytes(3, toBytes(entry.getPlayerUuid()));
+                    member.setInt(4, serverId);
+                    boolean updated = member.executeUpdate() > 0;
+                    
+                    details.setString(1, entry.getReason());
+                    details.setString(2, entry.getAddedBy());
+                    details.setBytes(3, toBytes(entry.getPlayerUuid()));
+                    details.setInt(4, serverId);
+                    details.executeUpdate();
+                    
+                    conn.commit();
+                    return updated;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to update whitelist entry", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<List<String>> getPlayerServers(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getPlayerServers", () -> {
             String sql = """
-                SELECT server_name FROM whitelist_entries 
-                WHERE player_uuid = ? AND active = TRUE
-                AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)
-            """;
+                SELECT s.name FROM whitelist_members m
+                JOIN whitelist_players p ON p.id = m.player_id
+                JOIN whitelist_servers s ON s.id = m.server_id
+                WHERE p.uuid = ? AND %s
+                AND (m.expires_at IS NULL OR m.expires_at > ?)
+            """.formatted(activeFilter);
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
-                ps.setString(1, playerUuid.toString());
+                ps.setBytes(1, toBytes(playerUuid));
+                ps.setLong(2, System.currentTimeMillis());
                 
                 List<String> servers = new ArrayList<>();
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        servers.add(rs.getString("server_name"));
+                        servers.add(rs.getString(1));
                     }
                 }
                 return servers;
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get player servers", e);
             }
-        }, executor);
+        });
     }
     
     @Override
-    public CompletableFuture<Integer> getEntryCount(String serverName) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT COUNT(*) FROM whitelist_entries WHERE server_name = ? AND active = TRUE";
+    public CompletableFuture<Map<UUID, Boolean>> isWhitelistedBatch(Collection<UUID> playerUuids, String serverName) {
+        return supply("isWhitelistedBatch", () -> {
+            Map<UUID, Boolean> result = new HashMap<>();
+            for (UUID playerUuid : playerUuids) {
+                result.put(playerUuid, false);
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection()) {
+                int serverId = resolveServerId(conn, serverName, false);
+                if (serverId == UNKNOWN_ID) {
+                    return result;
+                }
                 
-                ps.setString(1, serverName);
+                long now = System.currentTimeMillis();
+                for (List<UUID> chunk : chunks(result.keySet())) {
+                    String sql = """
+                        SELECT p.uuid FROM whitelist_members m
+                        JOIN whitelist_players p ON p.id = m.player_id
+                        WHERE p.uuid IN (%s) AND m.server_id = ? AND %s
+                        AND (m.expires_at IS NULL OR m.expires_at > ?)
+                    """.formatted(placeholders(chunk.size()), activeFilter);
+                    
+                    try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                        int index = setUuids(ps, chunk);
+                        ps.setInt(index++, serverId);
+                        ps.setLong(index, now);
+                        
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                result.put(fromBytes(rs.getBytes(1)), true);
+                            }
+                        }
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to check whitelist status in batch", e);
+            }
+        });
+    }
+    
+    @Override
+    public CompletableFuture<Map<UUID, List<String>>> getMembership(Collection<UUID> playerUuids) {
+        return supply("getMembership", () -> {
+            Map<UUID, List<String>> result = new HashMap<>();
+            for (UUID playerUuid : playerUuids) {
+                result.put(playerUuid, new ArrayList<>());
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+            
+            try (Connection conn = readConnection()) {
+                long now = System.currentTimeMillis();
+                for (List<UUID> chunk : chunks(result.keySet())) {
+                    String sql = """
+                        SELECT p.uuid, s.name FROM whitelist_members m
+                        JOIN whitelist_players p ON p.id = m.player_id
+                        JOIN whitelist_servers s ON s.id = m.server_id
+                        WHERE p.uuid IN (%s) AND %s
+                        AND (m.expires_at IS NULL OR m.expires_at > ?)
+                    """.formatted(placeholders(chunk.size()), activeFilter);
+                    
+                    try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                        int index = setUuids(ps, chunk);
+                        ps.setLong(index, now);
+                        
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                result.get(fromBytes(rs.getBytes(1))).add(rs.getString(2));
+                            }
+                        }
+                    }
+                }
+                return result;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to get membership", e);
+            }
+        });
+    }
+    
+    private static List<List<UUID>> chunks(Collection<UUID> playerUuids) {
+        List<UUID> all = new ArrayList<>(playerUuids);
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IN_LIST) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + MAX_IN_LIST)));
+        }
+        return chunks;
+    }
+    
+    private static int inListSize(int count) {
+        return count <= 1 ? 1 : Math.min(MAX_IN_LIST, Integer.highestOneBit(count - 1) << 1);
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(inListSize(count), "?"));
+    }
+    
+    private static int setUuids(PreparedStatement ps, List<UUID> chunk) throws SQLException {
+        int size = inListSize(chunk.size());
+        for (int i = 0; i < size; i++) {
+            ps.setBytes(i + 1, toBytes(chunk.get(Math.min(i, chunk.size() - 1))));
+        }
+        return size + 1;
+    }
+    
+    @Override
+    public CompletableFuture<Integer> getEntryCount(String serverName) {
+        return supply("getEntryCount", () -> {
+            String sql = "SELECT COUNT(*) FROM whitelist_members m WHERE m.server_id = ? AND " + activeFilter;
+            
+            try (Connection conn = readConnection()) {
+                int serverId = resolveServerId(conn, serverName, false);
+                if (serverId == UNKNOWN_ID) {
+                    return 0;
+                }
                 
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        return rs.getInt(1);
+                try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                    ps.setInt(1, serverId);
+                    
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            return rs.getInt(1);
+                        }
                     }
                 }
                 return 0;
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get entry count", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Integer> getTotalEntryCount() {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT COUNT(*) FROM whitelist_entries WHERE active = TRUE";
+        return supply("getTotalEntryCount", () -> {
+            String sql = "SELECT COUNT(*) FROM whitelist_members m WHERE " + activeFilter;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql);
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql);
                  ResultSet rs = ps.executeQuery()) {
                 
                 if (rs.next()) {
@@ -520,7 +1092,7 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get total entry count", e);
             }
-        }, executor);
+        });
     }
     
     private WhitelistEntry mapEntry(ResultSet rs) throws SQLException {
@@ -528,29 +1100,56 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
         if (rs.wasNull()) inviterTgId = null;
         
         String regType = rs.getString("registration_type");
-        RegistrationType registrationType = regType != null ? 
+        RegistrationType registrationType = regType != null ?
                 RegistrationType.valueOf(regType) : RegistrationType.MANUAL;
         
+        long createdAt = rs.getLong("created_at");
+        boolean unknownCreation = rs.wasNull();
+        long expiresAt = rs.getLong("expires_at");
+        boolean neverExpires = rs.wasNull();
+        
         return WhitelistEntry.builder()
-                .id(rs.getLong("id"))
-                .playerUuid(UUID.fromString(rs.getString("player_uuid")))
+                .playerUuid(fromBytes(rs.getBytes("uuid")))
                 .playerName(rs.getString("player_name"))
                 .serverName(rs.getString("server_name"))
                 .registrationType(registrationType)
                 .reason(rs.getString("reason"))
                 .addedBy(rs.getString("added_by"))
                 .inviterTelegramId(inviterTgId)
-                .createdAt(rs.getTimestamp("created_at").toInstant())
-                .expiresAt(rs.getTimestamp("expires_at") != null ? 
-                        rs.getTimestamp("expires_at").toInstant() : null)
-                .active(rs.getBoolean("active"))
+                .createdAt(unknownCreation ? Instant.EPOCH : Instant.ofEpochMilli(createdAt))
+                .expiresAt(neverExpires ? null : Instant.ofEpochMilli(expiresAt))
+                .active((rs.getInt("flags") & FLAG_ACTIVE) != 0)
                 .build();
     }
     
+    private int flagsOf(WhitelistEntry entry) {
+        return entry.isActive() ? FLAG_ACTIVE : 0;
+    }
+    
+    private void setMillis(PreparedStatement ps, int index, Instant instant) throws SQLException {
+        if (instant != null) {
+            ps.setLong(index, instant.toEpochMilli());
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+    
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+    
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+    
     
     @Override
     public CompletableFuture<RegistrationCode> createCode(RegistrationCode code) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("createCode", () -> {
             boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
             
             String sql = isSqlite ? """
@@ -563,37 +1162,55 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 VALUES (?, ?, ?, ?, ?, ?, FALSE)
             """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                
-                ps.setString(1, code.getCode());
-                ps.setLong(2, code.getTelegramId());
-                ps.setString(3, code.getTelegramUsername());
-                ps.setString(4, code.getPlayerName());
-                
-                if (isSqlite) {
-                    ps.setLong(5, code.getCreatedAt() != null ? code.getCreatedAt().toEpochMilli() : System.currentTimeMillis());
-                    ps.setLong(6, code.getExpiresAt().toEpochMilli());
-                } else {
-                    ps.setTimestamp(5, Timestamp.from(code.getCreatedAt() != null ? code.getCreatedAt() : Instant.now()));
-                    ps.setTimestamp(6, Timestamp.from(code.getExpiresAt()));
+            String supersedeSql = "DELETE FROM registration_codes WHERE telegram_id = ? AND used = FALSE AND code <> ?";
+            
+            try (Connection conn = connection()) {
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                        ps.setString(1, code.getCode());
+                        ps.setLong(2, code.getTelegramId());
+                        ps.setString(3, code.getTelegramUsername());
+                        ps.setString(4, code.getPlayerName());
+                        
+                        if (isSqlite) {
+                            ps.setLong(5, code.getCreatedAt() != null ? code.getCreatedAt().toEpochMilli() : System.currentTimeMillis());
+                            ps.setLong(6, code.getExpiresAt().toEpochMilli());
+                        } else {
+                            ps.setTimestamp(5, Timestamp.from(code.getCreatedAt() != null ? code.getCreatedAt() : Instant.now()));
+                            ps.setTimestamp(6, Timestamp.from(code.getExpiresAt()));
+                        }
+                        
+                        ps.executeUpdate();
+                    }
+                    
+                    try (PreparedStatement ps = slowQueries.prepare(conn, supersedeSql)) {
+                        ps.setLong(1, code.getTelegramId());
+                        ps.setString(2, code.getCode());
+                        ps.executeUpdate();
+                    }
+                    conn.commit();
+                    return code;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
                 }
-                
-                ps.executeUpdate();
-                return code;
             } catch (SQLException e) {
+                if (isDuplicateKey(e)) {
+                    throw new DuplicateCodeException(code.getCode(), e);
+                }
                 throw new RuntimeException("Failed to create registration code", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Optional<RegistrationCode>> getCode(String code) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getCode", () -> {
             String sql = "SELECT * FROM registration_codes WHERE code = ?";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = primaryReadConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setString(1, code);
                 
@@ -607,12 +1224,12 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get registration code", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Optional<RegistrationCode>> getActiveCodeByTelegramId(Long telegramId) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getActiveCodeByTelegramId", () -> {
             boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
             long currentTimeMillis = System.currentTimeMillis();
             
@@ -626,8 +1243,8 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 ORDER BY created_at DESC LIMIT 1
             """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = primaryReadConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setLong(1, telegramId);
                 if (isSqlite) {
@@ -643,12 +1260,41 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get active code by telegram id", e);
             }
-        }, executor);
+        });
+    }
+    
+    @Override
+    public CompletableFuture<List<RegistrationCode>> getActiveCodes() {
+        return supply("getActiveCodes", () -> {
+            boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
+            
+            String sql = isSqlite ?
+                "SELECT * FROM registration_codes WHERE used = 0 AND expires_at > ?" :
+                "SELECT * FROM registration_codes WHERE used = FALSE AND expires_at > CURRENT_TIMESTAMP";
+            
+            try (Connection conn = primaryReadConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
+                
+                if (isSqlite) {
+                    ps.setLong(1, System.currentTimeMillis());
+                }
+                
+                List<RegistrationCode> codes = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        codes.add(mapCodeSafe(rs));
+                    }
+                }
+                return codes;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to get active codes", e);
+            }
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> useCode(String code, UUID playerUuid, String playerName) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("useCode", () -> {
             boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
             long currentTimeMillis = System.currentTimeMillis();
             
@@ -662,8 +1308,8 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 WHERE code = ? AND used = FALSE AND expires_at > CURRENT_TIMESTAMP
             """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = connection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setString(1, playerUuid.toString());
                 ps.setString(2, playerName);
@@ -679,12 +1325,12 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to use registration code", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Integer> deleteExpiredCodes() {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("deleteExpiredCodes", () -> {
             boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
             long currentTimeMillis = System.currentTimeMillis();
             
@@ -692,8 +1338,8 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 "DELETE FROM registration_codes WHERE expires_at < ?" :
                 "DELETE FROM registration_codes WHERE expires_at < CURRENT_TIMESTAMP";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = connection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 if (isSqlite) {
                     ps.setLong(1, currentTimeMillis);
@@ -703,36 +1349,40 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to delete expired codes", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Void> invalidateCodesForTelegramId(Long telegramId) {
-        return CompletableFuture.runAsync(() -> {
+        return run("invalidateCodesForTelegramId", () -> {
             String sql = "DELETE FROM registration_codes WHERE telegram_id = ? AND used = FALSE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = connection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setLong(1, telegramId);
                 ps.executeUpdate();
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to invalidate codes", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<PlayerLink> createLink(PlayerLink link) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("createLink", () -> {
             String sql = """
                 INSERT INTO player_links 
                 (player_uuid, player_name, telegram_id, telegram_username, linked_at, active)
                 VALUES (?, ?, ?, ?, ?, ?)
             """;
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            boolean isSqlite = config.getStorageType() == StorageType.SQLITE;
+            
+            try (Connection conn = connection();
+                 PreparedStatement ps = isSqlite
+                         ? slowQueries.prepare(conn, sql)
+                         : slowQueries.prepare(conn, sql, Statement.RETURN_GENERATED_KEYS)) {
                 
                 ps.setString(1, link.getPlayerUuid().toString());
                 ps.setString(2, link.getPlayerName());
@@ -743,25 +1393,34 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 
                 ps.executeUpdate();
                 
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        link.setId(rs.getLong(1));
+                if (isSqlite) {
+                    try (PreparedStatement rowId = slowQueries.prepare(conn, "SELECT last_insert_rowid()");
+                         ResultSet rs = rowId.executeQuery()) {
+                        if (rs.next()) {
+                            link.setId(rs.getLong(1));
+                        }
+                    }
+                } else {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            link.setId(rs.getLong(1));
+                        }
                     }
                 }
                 return link;
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to create player link", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Optional<PlayerLink>> getLinkByPlayer(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getLinkByPlayer", () -> {
             String sql = "SELECT * FROM player_links WHERE player_uuid = ? AND active = TRUE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setString(1, playerUuid.toString());
                 
@@ -774,16 +1433,16 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get player link", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Optional<PlayerLink>> getLinkByTelegramId(Long telegramId) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getLinkByTelegramId", () -> {
             String sql = "SELECT * FROM player_links WHERE telegram_id = ? AND active = TRUE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setLong(1, telegramId);
                 
@@ -796,16 +1455,16 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get player link by telegram id", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> isPlayerLinked(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("isPlayerLinked", () -> {
             String sql = "SELECT 1 FROM player_links WHERE player_uuid = ? AND active = TRUE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setString(1, playerUuid.toString());
                 
@@ -815,16 +1474,16 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to check if player is linked", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> isTelegramLinked(Long telegramId) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("isTelegramLinked", () -> {
             String sql = "SELECT 1 FROM player_links WHERE telegram_id = ? AND active = TRUE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setLong(1, telegramId);
                 
@@ -834,16 +1493,16 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to check if telegram is linked", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<Boolean> unlinkPlayer(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("unlinkPlayer", () -> {
             String sql = "UPDATE player_links SET active = FALSE WHERE player_uuid = ?";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
+            try (Connection conn = connection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql)) {
                 
                 ps.setString(1, playerUuid.toString());
                 
@@ -851,16 +1510,16 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to unlink player", e);
             }
-        }, executor);
+        });
     }
     
     @Override
     public CompletableFuture<List<PlayerLink>> getAllLinks() {
-        return CompletableFuture.supplyAsync(() -> {
+        return supply("getAllLinks", () -> {
             String sql = "SELECT * FROM player_links WHERE active = TRUE";
             
-            try (Connection conn = dataSource.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql);
+            try (Connection conn = readConnection();
+                 PreparedStatement ps = slowQueries.prepare(conn, sql);
                  ResultSet rs = ps.executeQuery()) {
                 
                 List<PlayerLink> links = new ArrayList<>();
@@ -871,7 +1530,7 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
             } catch (SQLException e) {
                 throw new RuntimeException("Failed to get all player links", e);
             }
-        }, executor);
+        });
     }
     
     private RegistrationCode mapCode(ResultSet rs) throws SQLException {
@@ -889,6 +1548,18 @@ public class SqlStorage implements WhitelistStorage, TelegramStorage {
                 .build();
     }
     
+    private boolean isDuplicateKey(SQLException e) {
+        if (e instanceof SQLIntegrityConstraintViolationException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        if (state != null && state.startsWith("23")) {
+            return true;
+        }
+        String message = e.getMessage();
+        return message != null && message.contains("SQLITE_CONSTRAINT");
+    }
+    
     private RegistrationCode mapCodeSafe(ResultSet rs) throws SQLException {
         Instant createdAt;
         Instant expiresAt;
@@ -0,0 +1,12 @@
+package ru.tereegor.whitelist.common.storage;
+
+public class StorageUnavailableException extends RuntimeException {
+
+    public StorageUnavailableException(String operation) {
+        this("circuit is open", operation);
+    }
+
+    public StorageUnavailableException(String state, String operation) {
+        super("Storage " + state + ", rejected " + operation, null, false, false);
+    }
+}
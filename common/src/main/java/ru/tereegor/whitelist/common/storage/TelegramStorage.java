@@ -16,6 +16,8 @@ public interface TelegramStorage {
     
     CompletableFuture<Optional<RegistrationCode>> getActiveCodeByTelegramId(Long telegramId);
     
+    CompletableFuture<List<RegistrationCode>> getActiveCodes();
+    
     CompletableFuture<Boolean> useCode(String code, UUID playerUuid, String playerName);
     
     CompletableFuture<Integer> deleteExpiredCodes();
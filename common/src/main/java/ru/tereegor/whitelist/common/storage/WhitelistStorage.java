@@ -2,7 +2,9 @@ package ru.tereegor.whitelist.common.storage;
 
 import ru.tereegor.whitelist.common.model.WhitelistEntry;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -35,6 +37,10 @@ public interface WhitelistStorage {
     
     CompletableFuture<List<String>> getPlayerServers(UUID playerUuid);
     
+    CompletableFuture<Map<UUID, Boolean>> isWhitelistedBatch(Collection<UUID> playerUuids, String serverName);
+    
+    CompletableFuture<Map<UUID, List<String>>> getMembership(Collection<UUID> playerUuids);
+    
     CompletableFuture<Integer> getEntryCount(String serverName);
     
     CompletableFuture<Integer> getTotalEntryCount();
@@ -4,15 +4,13 @@ import java.security.SecureRandom;
 
 public class CodeGenerator {
     
-    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
-    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final char[] ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
     
     public static String generate(int length) {
-        StringBuilder sb = new StringBuilder(length);
-        for (int i = 0; i < length; i++) {
-            sb.append(ALPHABET.charAt(RANDOM.nextInt(ALPHABET.length())));
-        }
-        return sb.toString();
+        char[] chars = new char[length];
+        fill(chars, 0, length, RANDOM.get());
+        return new String(chars);
     }
     
     public static String generate() {
@@ -20,7 +18,17 @@ public class CodeGenerator {
     }
     
     public static String generateFormatted() {
-        return generate(3) + "-" + generate(3);
+        SecureRandom random = RANDOM.get();
+        char[] chars = new char[7];
+        fill(chars, 0, 3, random);
+        chars[3] = '-';
+        fill(chars, 4, 7, random);
+        return new String(chars);
+    }
+    
+    private static void fill(char[] chars, int from, int to, SecureRandom random) {
+        for (int i = from; i < to; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
     }
 }
-
@@ -6,21 +6,34 @@ import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
 import lombok.Getter;
 import org.slf4j.Logger;
+import ru.tereegor.whitelist.common.cache.OutageFallback;
+import ru.tereegor.whitelist.common.cache.WhitelistCache;
 import ru.tereegor.whitelist.common.config.DatabaseConfig;
+import ru.tereegor.whitelist.common.metrics.MetricsRegistry;
+import ru.tereegor.whitelist.common.metrics.MetricsServer;
+import ru.tereegor.whitelist.common.metrics.StorageCollector;
 import ru.tereegor.whitelist.common.storage.SqlStorage;
 import ru.tereegor.whitelist.common.storage.StorageType;
-import ru.tereegor.whitelist.velocity.cache.WhitelistCache;
 import ru.tereegor.whitelist.velocity.command.WhitelistVelocityCommand;
 import ru.tereegor.whitelist.velocity.config.VelocityConfig;
+import ru.tereegor.whitelist.velocity.listener.ProxyLoginListener;
+import ru.tereegor.whitelist.velocity.manager.OnlineReconciler;
 import ru.tereegor.whitelist.velocity.listener.ServerConnectListener;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Plugin(
         id = "whitelisttg",
@@ -39,6 +52,12 @@ public class WhitelistVelocityPlugin {
     private VelocityConfig config;
     private SqlStorage storage;
     private WhitelistCache cache;
+    private OutageFallback outageFallback;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private MetricsServer metricsServer;
+    private ScheduledTask refreshTask;
+    private OnlineReconciler onlineReconciler;
+    private CompletableFuture<Void> startup;
     
     @Inject
     public WhitelistVelocityPlugin(ProxyServer proxy, Logger logger, 
@@ -63,15 +82,22 @@ public class WhitelistVelocityPlugin {
         
         this.config = new VelocityConfig(dataDirectory);
         
-        initDatabase();
+        this.startup = initDatabase();
         
         this.cache = new WhitelistCache(
                 storage, 
                 config.getCacheTtl(), 
+                config.getCacheStaleSeconds(),
                 config.getCacheMaxSize()
         );
+        this.outageFallback = new OutageFallback(
+                TimeUnit.HOURS.toMillis(config.getOutageRetentionHours()), config.getOutageMaxSize());
+        
+        registerMetrics();
+        this.onlineReconciler = new OnlineReconciler(this);
         
         proxy.getEventManager().register(this, new ServerConnectListener(this));
+        proxy.getEventManager().register(this, new ProxyLoginListener(this));
         
         proxy.getCommandManager().register(
                 proxy.getCommandManager().metaBuilder("wlv")
@@ -81,11 +107,28 @@ public class WhitelistVelocityPlugin {
                 new WhitelistVelocityCommand(this)
         );
         
-        logger.info("WhitelistTG Velocity plugin enabled!");
+        startup.whenComplete((v, e) -> {
+            if (e != null) {
+                logger.error("Failed to initialize database", e);
+                return;
+            }
+            scheduleRefreshAhead();
+            onlineReconciler.start();
+            logger.info("WhitelistTG Velocity plugin enabled!");
+        });
     }
     
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+        }
+        if (onlineReconciler != null) {
+            onlineReconciler.stop();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
         if (cache != null) {
             cache.shutdown();
         }
@@ -95,6 +138,53 @@ public class WhitelistVelocityPlugin {
         logger.info("WhitelistTG Velocity plugin disabled!");
     }
     
+    private void scheduleRefreshAhead() {
+        int aheadSeconds = config.getCacheRefreshAheadSeconds();
+        if (aheadSeconds <= 0) {
+            return;
+        }
+        
+        long aheadMillis = TimeUnit.SECONDS.toMillis(aheadSeconds);
+        refreshTask = proxy.getScheduler()
+                .buildTask(this, () -> {
+                    Set<UUID> online = new HashSet<>();
+                    for (Player player : proxy.getAllPlayers()) {
+                        online.add(player.getUniqueId());
+                    }
+                    cache.refreshAhead(online, aheadMillis);
+                })
+                .repeat(Math.max(1, aheadSeconds / 2), TimeUnit.SECONDS)
+                .schedule();
+    }
+    
+    private void registerMetrics() {
+        metrics.register(new StorageCollector(storage.getMetrics(), storage::getPoolStats));
+        metrics.counter("whitelisttg_cache_requests_total", "Whitelist cache lookups by outcome",
+                () -> cache.getHits(), "result", "hit");
+        metrics.counter("whitelisttg_cache_requests_total", "Whitelist cache lookups by outcome",
+                () -> cache.getStaleHits(), "result", "stale");
+        metrics.counter("whitelisttg_cache_requests_total", "Whitelist cache lookups by outcome",
+                () -> cache.getMisses(), "result", "miss");
+        metrics.counter("whitelisttg_cache_refreshes_total", "Background whitelist cache refreshes",
+                () -> cache.getRefreshes());
+        metrics.gauge("whitelisttg_cache_entries", "Entries held in the whitelist cache", () -> cache.size());
+        
+        if (!config.isMetricsEnabled()) {
+            return;
+        }
+        
+        try {
+            metricsServer = new MetricsServer(metrics, config.getMetricsBind(),
+                    config.getMetricsPort(), config.getMetricsPath());
+            metricsServer.start();
+            logger.info("Metrics endpoint listening on {}:{}{}",
+                    config.getMetricsBind(), metricsServer.getPort(), config.getMetricsPath());
+        } catch (Exception e) {
+            metricsServer = null;
+            logger.warn("Failed to start metrics endpoint: {}", e.getMessage());
+        }
+    }
+    
     private void saveDefaultConfig() {
         Path configPath = dataDirectory.resolve("config.yml");
         if (!Files.exists(configPath)) {
@@ -108,7 +198,7 @@ public class WhitelistVelocityPlugin {
         }
     }
     
-    private void initDatabase() {
+    private CompletableFuture<Void> initDatabase() {
         DatabaseConfig dbConfig = DatabaseConfig.builder()
                 .storageType(StorageType.fromString(config.getStorageType()))
                 .host(config.getDatabaseHost())
@@ -121,11 +211,27 @@ public class WhitelistVelocityPlugin {
                 .connectionTimeout(config.getConnectionTimeout())
                 .idleTimeout(config.getIdleTimeout())
                 .maxLifetime(config.getMaxLifetime())
+                .slowQueryLog(config.isSlowQueryLog())
+                .slowQueryThresholdMillis(config.getSlowQueryThresholdMillis())
+                .slowQuerySampleRate(config.getSlowQuerySampleRate())
+                .circuitBreaker(config.isCircuitBreaker())
+                .circuitFailureRate(config.getCircuitFailureRate())
+                .circuitSlowCallMillis(config.getCircuitSlowCallMillis())
+                .circuitSlowCallRate(config.getCircuitSlowCallRate())
+                .circuitMinimumCalls(config.getCircuitMinimumCalls())
+                .circuitWindowSeconds(config.getCircuitWindowSeconds())
+                .circuitOpenSeconds(config.getCircuitOpenSeconds())
+                .replicaHost(config.getReplicaHost())
+                .replicaPort(config.getReplicaPort())
+                .replicaMaximumPoolSize(config.getReplicaMaxPoolSize())
+                .replicaMinimumIdle(config.getReplicaMinIdle())
+                .replicaConnectionTimeout(config.getReplicaConnectionTimeout())
+                .readYourWritesMillis(config.getReadYourWritesMillis())
                 .dataFolderPath(dataDirectory.toString())
                 .build();
         
         this.storage = new SqlStorage(dbConfig, msg -> logger.info(msg));
-        storage.initialize().join();
+        return storage.initialize();
     }
     
     public void reload() {
@@ -133,6 +239,9 @@ public class WhitelistVelocityPlugin {
         if (cache != null) {
             cache.invalidateAll();
         }
+        if (onlineReconciler != null && storage.isReady()) {
+            onlineReconciler.start();
+        }
         logger.info("Configuration reloaded!");
     }
 }
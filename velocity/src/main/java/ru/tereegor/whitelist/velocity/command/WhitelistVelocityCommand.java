@@ -7,9 +7,13 @@ import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import ru.tereegor.whitelist.common.metrics.LatencyHistogram;
+import ru.tereegor.whitelist.common.metrics.PoolStats;
+import ru.tereegor.whitelist.common.metrics.StorageMetrics;
 import ru.tereegor.whitelist.velocity.WhitelistVelocityPlugin;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -39,6 +43,7 @@ public class WhitelistVelocityCommand implements SimpleCommand {
             case "check" -> handleCheck(source, args);
             case "reload" -> handleReload(source);
             case "cache" -> handleCache(source, args);
+            case "stats" -> handleStats(source, args);
             case "help" -> sendHelp(source);
             default -> source.sendMessage(Component.text("Неизвестная команда. Используйте /wlv help", NamedTextColor.RED));
         }
@@ -119,10 +124,47 @@ public class WhitelistVelocityCommand implements SimpleCommand {
         source.sendMessage(Component.text("Кэш сервера очищен!", NamedTextColor.GREEN));
     }
     
+    private void handleStats(CommandSource source, String[] args) {
+        StorageMetrics metrics = plugin.getStorage().getMetrics();
+        
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            source.sendMessage(Component.text("Статистика хранилища сброшена!", NamedTextColor.GREEN));
+            return;
+        }
+        
+        PoolStats pool = plugin.getStorage().getPoolStats();
+        Map<String, StorageMetrics.OperationSnapshot> operations = metrics.snapshot();
+        
+        source.sendMessage(SERIALIZER.deserialize("&6=== Статистика хранилища ==="));
+        source.sendMessage(SERIALIZER.deserialize(
+                "&7Пул соединений: &e%d &7активных, &e%d &7свободных, &e%d &7ожидают (максимум &e%d&7)"
+                        .formatted(pool.active(), pool.idle(), pool.awaiting(), pool.maximum())));
+        source.sendMessage(SERIALIZER.deserialize(
+                "&7Ожидание соединения: " + formatLatency(metrics.poolWaitSnapshot())));
+        
+        if (operations.isEmpty()) {
+            source.sendMessage(SERIALIZER.deserialize("&7Запросов к хранилищу ещё не было."));
+            return;
+        }
+        
+        operations.forEach((operation, snapshot) -> source.sendMessage(SERIALIZER.deserialize(
+                "&6%s &7×&e%d %s &7ошибок: &e%d".formatted(operation, snapshot.latency().count(),
+                        formatLatency(snapshot.latency()), snapshot.errors()))));
+    }
+    
+    private String formatLatency(LatencyHistogram.Snapshot snapshot) {
+        return "&7p50 &e%s &7p99 &e%s &7max &e%s".formatted(
+                LatencyHistogram.formatMicros(snapshot.percentileMicros(50)),
+                LatencyHistogram.formatMicros(snapshot.percentileMicros(99)),
+                LatencyHistogram.formatMicros(snapshot.maxMicros()));
+    }
+    
     private void sendHelp(CommandSource source) {
         source.sendMessage(SERIALIZER.deserialize("&6=== WhitelistTG Velocity ==="));
         source.sendMessage(SERIALIZER.deserialize("&e/wlv check <игрок> &7- Проверить игрока"));
         source.sendMessage(SERIALIZER.deserialize("&e/wlv cache <clear|player|server> &7- Управление кэшем"));
+        source.sendMessage(SERIALIZER.deserialize("&e/wlv stats [reset] &7- Статистика хранилища"));
         source.sendMessage(SERIALIZER.deserialize("&e/wlv reload &7- Перезагрузить конфиг"));
     }
     
@@ -133,7 +175,7 @@ public class WhitelistVelocityCommand implements SimpleCommand {
         if (args.length <= 1) {
             String prefix = args.length == 0 ? "" : args[0].toLowerCase();
             return CompletableFuture.completedFuture(
-                    filterCompletions(prefix, "check", "cache", "reload", "help"));
+                    filterCompletions(prefix, "check", "cache", "stats", "reload", "help"));
         }
         
         if (args.length == 2) {
@@ -148,6 +190,8 @@ public class WhitelistVelocityCommand implements SimpleCommand {
                                 .collect(Collectors.toList()));
                 case "cache" -> CompletableFuture.completedFuture(
                         filterCompletions(prefix, "clear", "player", "server"));
+                case "stats" -> CompletableFuture.completedFuture(
+                        filterCompletions(prefix, "reset"));
                 default -> CompletableFuture.completedFuture(List.of());
             };
         }
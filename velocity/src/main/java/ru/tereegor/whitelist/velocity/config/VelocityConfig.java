@@ -2,12 +2,15 @@ package ru.tereegor.whitelist.velocity.config;
 
 import lombok.Getter;
 import org.yaml.snakeyaml.Yaml;
+import ru.tereegor.whitelist.common.cache.OutagePolicy;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Getter
@@ -16,8 +19,11 @@ public class VelocityConfig {
     private final String language;
     private final String kickMessage;
     private final String whitelistDisabledMessage;
+    private final String startingMessage;
     private final List<String> bypassServers;
     private final List<String> whitelistServers;
+    private final int reconcileIntervalSeconds;
+    private final long startupWaitMillis;
     
     private final String storageType;
     private final String databaseHost;
@@ -32,8 +38,41 @@ public class VelocityConfig {
     private final long idleTimeout;
     private final long maxLifetime;
     
+    private final boolean slowQueryLog;
+    private final long slowQueryThresholdMillis;
+    private final double slowQuerySampleRate;
+    
+    private final boolean circuitBreaker;
+    private final double circuitFailureRate;
+    private final long circuitSlowCallMillis;
+    private final double circuitSlowCallRate;
+    private final int circuitMinimumCalls;
+    private final int circuitWindowSeconds;
+    private final int circuitOpenSeconds;
+    
+    private final String replicaHost;
+    private final int replicaPort;
+    private final int replicaMaxPoolSize;
+    private final int replicaMinIdle;
+    private final long replicaConnectionTimeout;
+    private final long readYourWritesMillis;
+    
     private final int cacheTtl;
     private final int cacheMaxSize;
+    private final int cacheStaleSeconds;
+    private final int cacheRefreshAheadSeconds;
+    private final boolean cacheWarmOnLogin;
+    
+    private final long checkTimeoutMillis;
+    private final OutagePolicy defaultOutagePolicy;
+    private final Map<String, OutagePolicy> outagePolicies;
+    private final int outageRetentionHours;
+    private final int outageMaxSize;
+    
+    private final boolean metricsEnabled;
+    private final String metricsBind;
+    private final int metricsPort;
+    private final String metricsPath;
     
     private final boolean debug;
     
@@ -55,9 +94,13 @@ public class VelocityConfig {
                 "&cУ вас нет доступа к серверу &6%server%");
         this.whitelistDisabledMessage = getString(messages, "whitelist-disabled",
                 "&aВайтлист отключен");
+        this.startingMessage = getString(messages, "starting",
+                "&eПрокси ещё запускается, попробуйте через несколько секунд.");
         
         this.bypassServers = getList(config, "bypass-servers", List.of("lobby", "hub"));
         this.whitelistServers = getList(config, "whitelist-servers", List.of());
+        this.reconcileIntervalSeconds = getInt(config, "reconcile-interval-seconds", 60);
+        this.startupWaitMillis = getLong(config, "startup-wait-millis", 5000);
         
         this.storageType = getString(config, "storage", "SQLITE");
         
@@ -75,9 +118,49 @@ public class VelocityConfig {
         this.idleTimeout = getLong(pool, "idle-timeout", 600000);
         this.maxLifetime = getLong(pool, "max-lifetime", 1800000);
         
+        Map<String, Object> slowQueries = getMap(database, "slow-query-log");
+        this.slowQueryLog = getBoolean(slowQueries, "enabled", false);
+        this.slowQueryThresholdMillis = getLong(slowQueries, "threshold-millis", 200);
+        this.slowQuerySampleRate = getDouble(slowQueries, "sample-rate", 1.0);
+        
+        Map<String, Object> breaker = getMap(database, "circuit-breaker");
+        this.circuitBreaker = getBoolean(breaker, "enabled", true);
+        this.circuitFailureRate = getDouble(breaker, "failure-rate", 0.5);
+        this.circuitSlowCallMillis = getLong(breaker, "slow-call-millis", 2000);
+        this.circuitSlowCallRate = getDouble(breaker, "slow-call-rate", 0.8);
+        this.circuitMinimumCalls = getInt(breaker, "minimum-calls", 20);
+        this.circuitWindowSeconds = getInt(breaker, "window-seconds", 10);
+        this.circuitOpenSeconds = getInt(breaker, "open-seconds", 10);
+        
+        Map<String, Object> replica = getMap(database, "replica");
+        this.replicaHost = getString(replica, "host", "");
+        this.replicaPort = getInt(replica, "port", 3306);
+        this.replicaMaxPoolSize = getInt(replica, "maximum-pool-size", 10);
+        this.replicaMinIdle = getInt(replica, "minimum-idle", 2);
+        this.replicaConnectionTimeout = getLong(replica, "connection-timeout", 2000);
+        this.readYourWritesMillis = getLong(replica, "read-your-writes-millis", 2000);
+        
         Map<String, Object> cache = getMap(config, "cache");
         this.cacheTtl = getInt(cache, "ttl", 60);
         this.cacheMaxSize = getInt(cache, "max-size", 1000);
+        this.cacheStaleSeconds = getInt(cache, "stale-seconds", 60);
+        this.cacheRefreshAheadSeconds = getInt(cache, "refresh-ahead-seconds", 10);
+        this.cacheWarmOnLogin = getBoolean(cache, "warm-on-login", true);
+        
+        Map<String, Object> outage = getMap(config, "outage");
+        this.checkTimeoutMillis = getLong(outage, "check-timeout-millis", 2000);
+        this.defaultOutagePolicy = OutagePolicy.fromString(getString(outage, "default-policy", "stale"));
+        this.outagePolicies = new HashMap<>();
+        getMap(outage, "servers").forEach((server, policy) -> outagePolicies.put(
+                server.toLowerCase(Locale.ROOT), OutagePolicy.fromString(String.valueOf(policy))));
+        this.outageRetentionHours = getInt(outage, "retention-hours", 24);
+        this.outageMaxSize = getInt(outage, "max-size", 10000);
+        
+        Map<String, Object> metrics = getMap(config, "metrics");
+        this.metricsEnabled = getBoolean(metrics, "enabled", false);
+        this.metricsBind = getString(metrics, "bind", "127.0.0.1");
+        this.metricsPort = getInt(metrics, "port", 9226);
+        this.metricsPath = getString(metrics, "path", "/metrics");
         
         this.debug = getBoolean(config, "debug", false);
     }
@@ -87,6 +170,10 @@ public class VelocityConfig {
                 .anyMatch(s -> s.equalsIgnoreCase(serverName));
     }
     
+    public OutagePolicy getOutagePolicy(String serverName) {
+        return outagePolicies.getOrDefault(serverName.toLowerCase(Locale.ROOT), defaultOutagePolicy);
+    }
+    
     public boolean requiresWhitelist(String serverName) {
         if (isBypassServer(serverName)) {
             return false;
@@ -128,6 +215,14 @@ public class VelocityConfig {
         return defaultValue;
     }
     
+    private double getDouble(Map<String, Object> config, String key, double defaultValue) {
+        Object value = config.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return defaultValue;
+    }
+    
     private boolean getBoolean(Map<String, Object> config, String key, boolean defaultValue) {
         Object value = config.get(key);
         if (value instanceof Boolean) {
@@ -0,0 +1,77 @@
+package ru.tereegor.whitelist.velocity.listener;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import ru.tereegor.whitelist.velocity.WhitelistVelocityPlugin;
+import ru.tereegor.whitelist.velocity.config.VelocityConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@RequiredArgsConstructor
+public class ProxyLoginListener {
+    
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacyAmpersand();
+    
+    private final WhitelistVelocityPlugin plugin;
+    
+    @Subscribe
+    public EventTask onLogin(LoginEvent event) {
+        VelocityConfig config = plugin.getConfig();
+        Player player = event.getPlayer();
+        
+        if (plugin.getStorage().isReady()) {
+            CompletableFuture<Void> warm = warm(config, player);
+            return warm != null ? EventTask.resumeWhenComplete(warm) : null;
+        }
+        
+        return EventTask.resumeWhenComplete(plugin.getStartup()
+                .exceptionally(e -> null)
+                .completeOnTimeout(null, config.getStartupWaitMillis(), TimeUnit.MILLISECONDS)
+                .thenCompose(v -> {
+                    if (!plugin.getStorage().isReady()) {
+                        event.setResult(ResultedEvent.ComponentResult.denied(
+                                SERIALIZER.deserialize(config.getStartingMessage())));
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    CompletableFuture<Void> warm = warm(config, player);
+                    return warm != null ? warm : CompletableFuture.completedFuture(null);
+                }));
+    }
+    
+    private CompletableFuture<Void> warm(VelocityConfig config, Player player) {
+        if (!config.isCacheWarmOnLogin()) {
+            return null;
+        }
+        
+        List<String> servers = new ArrayList<>();
+        for (RegisteredServer server : plugin.getProxy().getAllServers()) {
+            String serverName = server.getServerInfo().getName();
+            if (config.requiresWhitelist(serverName)) {
+                servers.add(serverName);
+            }
+        }
+        if (servers.isEmpty()) {
+            return null;
+        }
+        
+        return plugin.getCache()
+                .warmPlayer(player.getUniqueId(), servers)
+                .completeOnTimeout(null, config.getCheckTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    if (config.isDebug()) {
+                        plugin.getLogger().info("Failed to warm whitelist cache for {}: {}",
+                                player.getUsername(), e.getMessage());
+                    }
+                    return null;
+                });
+    }
+}
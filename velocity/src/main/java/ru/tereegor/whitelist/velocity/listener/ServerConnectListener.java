@@ -4,9 +4,18 @@ import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.proxy.Player;
 import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import ru.tereegor.whitelist.common.cache.OutageFallback;
+import ru.tereegor.whitelist.common.cache.OutagePolicy;
+import ru.tereegor.whitelist.common.storage.StorageUnavailableException;
 import ru.tereegor.whitelist.velocity.WhitelistVelocityPlugin;
+import ru.tereegor.whitelist.velocity.config.VelocityConfig;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -14,9 +23,12 @@ import java.util.concurrent.TimeoutException;
 public class ServerConnectListener {
     
     private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacyAmpersand();
-    private static final long WHITELIST_CHECK_TIMEOUT_SECONDS = 5;
+    private static final String PLAYER_PLACEHOLDER = "%player%";
+    private static final Component ERROR_MESSAGE = SERIALIZER.deserialize(
+            "&cПроизошла ошибка при проверке доступа. Попробуйте позже.");
     
     private final WhitelistVelocityPlugin plugin;
+    private volatile KickMessages kickMessages;
     
     @Subscribe
     public void onServerPreConnect(ServerPreConnectEvent event) {
@@ -24,6 +36,8 @@ public class ServerConnectListener {
             processConnection(event);
         } catch (Exception e) {
             plugin.getLogger().error("Unexpected error in ServerPreConnectEvent", e);
+            count(event.getOriginalServer() != null
+                    ? event.getOriginalServer().getServerInfo().getName() : "unknown", "error");
             denyWithError(event);
         }
     }
@@ -39,15 +53,17 @@ public class ServerConnectListener {
         String serverName = targetServer.getServerInfo().getName();
         
         if (shouldBypass(player, serverName)) {
+            count(serverName, "bypass");
             return;
         }
         
-        boolean isWhitelisted = checkWhitelist(player, serverName);
+        Decision decision = checkWhitelist(player, serverName);
+        count(serverName, decision.label());
         
-        if (!isWhitelisted) {
+        if (!decision.allowed()) {
             denyAccess(event, player, serverName);
         } else {
-            debug("Allowed %s connection to %s - whitelisted".formatted(player.getUsername(), serverName));
+            debug("Allowed %s connection to %s - %s".formatted(player.getUsername(), serverName, decision.label()));
         }
     }
     
@@ -65,37 +81,72 @@ public class ServerConnectListener {
         return false;
     }
     
-    private boolean checkWhitelist(Player player, String serverName) {
+    private Decision checkWhitelist(Player player, String serverName) {
+        OutageFallback fallback = plugin.getOutageFallback();
+        long timeoutMillis = plugin.getConfig().getCheckTimeoutMillis();
         try {
-            return plugin.getCache()
+            boolean whitelisted = plugin.getCache()
                     .isWhitelisted(player.getUniqueId(), serverName)
-                    .get(WHITELIST_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            fallback.remember(player.getUniqueId(), serverName, whitelisted);
+            return whitelisted ? Decision.ALLOWED : Decision.DENIED;
         } catch (TimeoutException e) {
-            plugin.getLogger().error("Whitelist check timeout for {} after {} seconds",
-                    player.getUsername(), WHITELIST_CHECK_TIMEOUT_SECONDS);
-            return false;
-        } catch (Exception e) {
-            plugin.getLogger().error("Error checking whitelist for {} on server {}",
-                    player.getUsername(), serverName, e);
-            return false;
+            plugin.getLogger().warn("Whitelist check timeout for {} after {} ms",
+                    player.getUsername(), timeoutMillis);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StorageUnavailableException) {
+                debug("Whitelist check for %s skipped - database circuit is open".formatted(player.getUsername()));
+            } else {
+                plugin.getLogger().error("Error checking whitelist for {} on server {}",
+                        player.getUsername(), serverName, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Decision.FALLBACK_DENIED;
         }
+        
+        OutagePolicy policy = plugin.getConfig().getOutagePolicy(serverName);
+        return fallback.decide(policy, player.getUniqueId(), serverName)
+                ? Decision.FALLBACK_ALLOWED : Decision.FALLBACK_DENIED;
     }
     
     private void denyAccess(ServerPreConnectEvent event, Player player, String serverName) {
-        String kickMessage = plugin.getConfig().getKickMessage()
-                .replace("%player%", player.getUsername())
-                .replace("%server%", serverName);
-
         event.setResult(ServerPreConnectEvent.ServerResult.denied());
-        player.sendMessage(SERIALIZER.deserialize(kickMessage));
+        player.sendMessage(kickMessage(player, serverName));
         
         debug("Denied %s connection to %s - not whitelisted".formatted(player.getUsername(), serverName));
     }
     
+    private Component kickMessage(Player player, String serverName) {
+        VelocityConfig config = plugin.getConfig();
+        KickMessages current = kickMessages;
+        if (current == null || current.config() != config) {
+            current = new KickMessages(config, new ConcurrentHashMap<>());
+            kickMessages = current;
+        }
+        
+        KickMessage message = current.byServer().computeIfAbsent(serverName, name -> {
+            String text = config.getKickMessage().replace("%server%", name);
+            return new KickMessage(SERIALIZER.deserialize(text), text.contains(PLAYER_PLACEHOLDER));
+        });
+        
+        if (!message.hasPlayer()) {
+            return message.component();
+        }
+        return message.component().replaceText(TextReplacementConfig.builder()
+                .matchLiteral(PLAYER_PLACEHOLDER)
+                .replacement(player.getUsername())
+                .build());
+    }
+    
     private void denyWithError(ServerPreConnectEvent event) {
         event.setResult(ServerPreConnectEvent.ServerResult.denied());
-        event.getPlayer().sendMessage(SERIALIZER.deserialize(
-                "&cПроизошла ошибка при проверке доступа. Попробуйте позже."));
+        event.getPlayer().sendMessage(ERROR_MESSAGE);
+    }
+    
+    private void count(String serverName, String result) {
+        plugin.getMetrics().counter("whitelisttg_logins_total", "Server connections by whitelist decision",
+                "server", serverName, "result", result).increment();
     }
     
     private void debug(String message) {
@@ -103,4 +154,28 @@ public class ServerConnectListener {
             plugin.getLogger().info(message);
         }
     }
+    
+    private enum Decision {
+        ALLOWED,
+        DENIED,
+        FALLBACK_ALLOWED,
+        FALLBACK_DENIED;
+        
+        boolean allowed() {
+            return this == ALLOWED || this == FALLBACK_ALLOWED;
+        }
+        
+        String label() {
+            return switch (this) {
+                case ALLOWED -> "allowed";
+                case DENIED -> "denied";
+                case FALLBACK_ALLOWED -> "fallback_allowed";
+                case FALLBACK_DENIED -> "fallback_denied";
+            };
+        }
+    }
+    
+    private record KickMessages(VelocityConfig config, Map<String, KickMessage> byServer) {}
+    
+    private record KickMessage(Component component, boolean hasPlayer) {}
 }
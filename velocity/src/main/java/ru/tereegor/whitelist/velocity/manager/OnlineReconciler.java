@@ -0,0 +1,121 @@
+package ru.tereegor.whitelist.velocity.manager;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import ru.tereegor.whitelist.velocity.WhitelistVelocityPlugin;
+import ru.tereegor.whitelist.velocity.config.VelocityConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RequiredArgsConstructor
+public class OnlineReconciler {
+    
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacyAmpersand();
+    
+    private final WhitelistVelocityPlugin plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ScheduledTask task;
+    
+    public void start() {
+        stop();
+        int intervalSeconds = plugin.getConfig().getReconcileIntervalSeconds();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        task = plugin.getProxy().getScheduler()
+                .buildTask(plugin, this::reconcile)
+                .delay(intervalSeconds, TimeUnit.SECONDS)
+                .repeat(intervalSeconds, TimeUnit.SECONDS)
+                .schedule();
+    }
+    
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    private void reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        
+        VelocityConfig config = plugin.getConfig();
+        Map<String, List<UUID>> byServer = new HashMap<>();
+        for (Player player : plugin.getProxy().getAllPlayers()) {
+            Optional<ServerConnection> current = player.getCurrentServer();
+            if (current.isEmpty() || player.hasPermission("whitelist.bypass")) {
+                continue;
+            }
+            String serverName = current.get().getServerInfo().getName();
+            if (config.requiresWhitelist(serverName)) {
+                byServer.computeIfAbsent(serverName, name -> new ArrayList<>()).add(player.getUniqueId());
+            }
+        }
+        
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        byServer.forEach((serverName, players) -> checks.add(plugin.getCache()
+                .revalidate(players, serverName)
+                .thenAccept(result -> result.forEach((playerUuid, whitelisted) -> {
+                    if (!whitelisted) {
+                        plugin.getProxy().getPlayer(playerUuid).ifPresent(player -> revoke(player, serverName));
+                    }
+                }))));
+        
+        CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> {
+            running.set(false);
+            if (e != null && config.isDebug()) {
+                plugin.getLogger().info("Skipped online player revalidation: {}", e.getMessage());
+            }
+        });
+    }
+    
+    private void revoke(Player player, String serverName) {
+        Optional<ServerConnection> current = player.getCurrentServer();
+        if (current.isEmpty() || !current.get().getServerInfo().getName().equals(serverName)
+                || player.hasPermission("whitelist.bypass")) {
+            return;
+        }
+        
+        VelocityConfig config = plugin.getConfig();
+        Component message = SERIALIZER.deserialize(config.getKickMessage()
+                .replace("%server%", serverName)
+                .replace("%player%", player.getUsername()));
+        
+        Optional<RegisteredServer> fallback = fallbackServer(config);
+        if (fallback.isPresent()) {
+            player.createConnectionRequest(fallback.get()).fireAndForget();
+            player.sendMessage(message);
+        } else {
+            player.disconnect(message);
+        }
+        
+        plugin.getMetrics().counter("whitelisttg_access_revoked_total",
+                "Online players removed after losing whitelist access", "server", serverName).increment();
+        plugin.getLogger().info("Removed {} from {} - no longer whitelisted", player.getUsername(), serverName);
+    }
+    
+    private Optional<RegisteredServer> fallbackServer(VelocityConfig config) {
+        for (String serverName : config.getBypassServers()) {
+            Optional<RegisteredServer> server = plugin.getProxy().getServer(serverName);
+            if (server.isPresent()) {
+                return server;
+            }
+        }
+        return Optional.empty();
+    }
+}